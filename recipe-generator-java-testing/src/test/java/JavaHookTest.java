@@ -1,6 +1,7 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -8,6 +9,7 @@ import static org.mockito.Mockito.verify;
 import ca.derekcormier.recipe.BackendOven;
 import ca.derekcormier.recipe.BaseIngredientHook;
 import ca.derekcormier.recipe.Cake;
+import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 import testdomain.hooks.AbstractAllParamsIngredientHook;
@@ -24,6 +26,7 @@ import testdomain.hooks.AbstractIngredientWithRepeatableVarargOptionalHook;
 import testdomain.hooks.AbstractIngredientWithRequiredAndOptionalHook;
 import testdomain.hooks.AbstractIngredientWithRequiredHook;
 import testdomain.hooks.AbstractIngredientWithStringDefaultContainingQuotesHook;
+import testdomain.hooks.AbstractKeyedTestIngredientHook;
 import testdomain.hooks.AllParamsIngredientData;
 import testdomain.hooks.EmptyIngredientData;
 import testdomain.hooks.IngredientWithCompoundOptionalData;
@@ -57,6 +60,17 @@ public class JavaHookTest {
     };
   }
 
+  @Test
+  public void testGeneration_generatedHookCanOverrideTypedBakeBatch() {
+    new AbstractEmptyIngredientHook() {
+      @Override
+      public void bake(EmptyIngredientData data, Cake cake) {}
+
+      @Override
+      public void bakeBatch(List<EmptyIngredientData> data, Cake cake) {}
+    };
+  }
+
   @Test
   public void testGeneration_generatedHookHasCorrectSuperclass() {
     assertEquals(BaseIngredientHook.class, AbstractAllParamsIngredientHook.class.getSuperclass());
@@ -459,6 +473,21 @@ public class JavaHookTest {
     verify(spy).run();
   }
 
+  @Test
+  public void testEquals_ingredientDataWithSameValues() {
+    IngredientWithOptionalData data = new IngredientWithOptionalData();
+    data.setOptional(true);
+    IngredientWithOptionalData same = new IngredientWithOptionalData();
+    same.setOptional(true);
+    IngredientWithOptionalData other = new IngredientWithOptionalData();
+    other.setOptional(false);
+
+    assertEquals(data, same);
+    assertEquals(data.hashCode(), same.hashCode());
+    assertNotEquals(data, other);
+    assertNotEquals(other, new IngredientWithOptionalData());
+  }
+
   @Test
   public void testBake_deserialization_ingredientWithRepeatableOptional_singleValuePresent() {
     Runnable spy = spy(Runnable.class);
@@ -864,6 +893,60 @@ public class JavaHookTest {
     verify(spy).run();
   }
 
+  @Test
+  public void testBake_deserialization_keyedIngredient() {
+    Runnable spy = spy(Runnable.class);
+    BackendOven oven = new BackendOven();
+    oven.registerHook(
+        new AbstractKeyedTestIngredientHook() {
+          @Override
+          public void bake(KeyedTestIngredientData data, Cake cake) {
+            assertEquals("foo", data.getKey());
+            spy.run();
+          }
+        });
+
+    oven.bake(payloadJson("{\"KeyedTestIngredient\":{\"key\":\"foo\"}}"));
+    verify(spy).run();
+  }
+
+  @Test
+  public void testBake_deserialization_ingredientWithIntParam_coercedFromString() {
+    Runnable spy = spy(Runnable.class);
+    BackendOven oven = new BackendOven();
+    oven.registerHook(
+        new AbstractAllParamsIngredientHook() {
+          @Override
+          public void bake(AllParamsIngredientData data, Cake cake) {
+            assertEquals(5, data.getIntArg());
+            assertTrue(data.hasIntArg());
+            spy.run();
+          }
+        });
+
+    oven.bake(payloadJson("{\"AllParamsIngredient\":{\"intArg\":\"5\"}}"));
+    verify(spy).run();
+  }
+
+  @Test
+  public void testBake_deserialization_ignoresUnknownProperty() {
+    Runnable spy = spy(Runnable.class);
+    BackendOven oven = new BackendOven();
+    oven.registerHook(
+        new AbstractAllParamsIngredientHook() {
+          @Override
+          public void bake(AllParamsIngredientData data, Cake cake) {
+            assertEquals("foobar", data.getStringArg());
+            spy.run();
+          }
+        });
+
+    oven.bake(
+        payloadJson(
+            "{\"AllParamsIngredient\":{\"unknown\":{\"a\":[1,2]},\"stringArg\":\"foobar\"}}"));
+    verify(spy).run();
+  }
+
   @Test
   public void testBake_deserializesCake() {
     Runnable spy = spy(Runnable.class);
@@ -1,20 +1,24 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ca.derekcormier.recipe.Cake;
+import ca.derekcormier.recipe.CakeCache;
 import ca.derekcormier.recipe.Dispatcher;
 import ca.derekcormier.recipe.Oven;
 import ca.derekcormier.recipe.Recipe;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
@@ -22,6 +26,8 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import testdomain.ingredients.AllParamsIngredient;
 import testdomain.ingredients.EmptyIngredient;
+import testdomain.ingredients.IdempotentIngredient;
+import testdomain.ingredients.IngredientWithCakeKeys;
 import testdomain.ingredients.IngredientWithCompoundOptional;
 import testdomain.ingredients.IngredientWithCompoundOptionalWithOneParam;
 import testdomain.ingredients.IngredientWithConstant;
@@ -306,6 +312,18 @@ public class JavaIngredientTest {
         payloadJson("{\"IngredientWithRepeatableOptional\":{\"optional\":[true,false]}}"));
   }
 
+  @Test
+  public void testBake_serialization_repeatableOptionalDoesNotChangeEarlierIngredient() {
+    setupDispatcherSpy("TestDomain");
+    IngredientWithRepeatableOptional ingredient =
+        new IngredientWithRepeatableOptional().withOptional(true);
+    ingredient.withOptional(false);
+    oven.bake(Recipe.prepare(ingredient));
+
+    assertDispatchedJson(
+        payloadJson("{\"IngredientWithRepeatableOptional\":{\"optional\":[true]}}"));
+  }
+
   @Test
   public void testBake_serialization_ingredientWithRepeatableVarargOptional() {
     setupDispatcherSpy("TestDomain");
@@ -514,6 +532,104 @@ public class JavaIngredientTest {
         "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"KeyedTestIngredient\":{\"key\":\"foo\"}},{\"Recipe\":{\"context\":\"foo\",\"ingredients\":[{\"EmptyIngredient\":{}}]}}]}},\"cake\":{}}");
   }
 
+  @Test
+  public void testGetRoundTripsSaved_followsDeclaredCakeKeys() {
+    IngredientWithCakeKeys first = new IngredientWithCakeKeys("owner");
+    first.keyed("first");
+    IngredientWithCakeKeys second = new IngredientWithCakeKeys("owner");
+    second.keyed("second");
+
+    assertEquals(
+        1,
+        oven.getRoundTripsSaved(
+            Recipe.prepare(first, new DomainBIngredientWithCakeKeys("first"), second)));
+    assertEquals(
+        0,
+        oven.getRoundTripsSaved(
+            Recipe.prepare(first, new DomainBIngredientWithCakeKeys("second"), second)));
+    assertEquals(
+        0,
+        oven.getRoundTripsSaved(
+            Recipe.prepare(
+                first,
+                new DomainBIngredientWithCakeKeys("first").keyed("b"),
+                second.withTags("a").withTags("b"))));
+  }
+
+  @Test
+  public void testEquals_comparesTypedFields() {
+    assertEquals(
+        new IngredientWithCompoundOptional().withCompoundOptional(5, true),
+        new IngredientWithCompoundOptional().withCompoundOptional(5, true));
+    assertEquals(
+        new IngredientWithCompoundOptional().withCompoundOptional(5, true).hashCode(),
+        new IngredientWithCompoundOptional().withCompoundOptional(5, true).hashCode());
+    assertNotEquals(
+        new IngredientWithCompoundOptional().withCompoundOptional(5, true),
+        new IngredientWithCompoundOptional().withCompoundOptional(5, false));
+    assertNotEquals(new IngredientWithOptional(), new IngredientWithOptional().withOptional(false));
+  }
+
+  @Test
+  public void testEquals_comparesRepeatablesInOrder() {
+    assertEquals(
+        new IngredientWithRepeatableOptional().withOptional(true).withOptional(false),
+        new IngredientWithRepeatableOptional().withOptional(true).withOptional(false));
+    assertNotEquals(
+        new IngredientWithRepeatableOptional().withOptional(true).withOptional(false),
+        new IngredientWithRepeatableOptional().withOptional(false).withOptional(true));
+  }
+
+  @Test
+  public void testEquals_comparesRepeatableVarargsByValue() {
+    assertEquals(
+        new IngredientWithRepeatableVarargOptional().withOptional(1, 2),
+        new IngredientWithRepeatableVarargOptional().withOptional(1, 2));
+    assertEquals(
+        new IngredientWithRepeatableVarargOptional().withOptional(1, 2).hashCode(),
+        new IngredientWithRepeatableVarargOptional().withOptional(1, 2).hashCode());
+    assertNotEquals(
+        new IngredientWithRepeatableVarargOptional().withOptional(1, 2),
+        new IngredientWithRepeatableVarargOptional().withOptional(2, 1));
+  }
+
+  @Test
+  public void testWith_repeatableLeavesEarlierCopiesUnchanged() {
+    IngredientWithRepeatableOptional base =
+        new IngredientWithRepeatableOptional().withOptional(true);
+    IngredientWithRepeatableOptional first = base.withOptional(false);
+    IngredientWithRepeatableOptional second = base.withOptional(true);
+
+    assertEquals(new IngredientWithRepeatableOptional().withOptional(true), base);
+    assertEquals(
+        new IngredientWithRepeatableOptional().withOptional(true).withOptional(false), first);
+    assertEquals(
+        new IngredientWithRepeatableOptional().withOptional(true).withOptional(true), second);
+  }
+
+  @Test
+  public void testEquals_comparesKey() {
+    assertEquals(
+        new KeyedIngredientWithDefaultKey("foo"), new KeyedIngredientWithDefaultKey("foo"));
+    assertNotEquals(
+        new KeyedIngredientWithDefaultKey("foo"),
+        new KeyedIngredientWithDefaultKey("foo").keyed("bar"));
+  }
+
+  @Test
+  public void testBake_cakeCacheReusesCakeOfIdempotentIngredient() {
+    setupDispatcherSpy("TestDomain");
+    oven.setCakeCache(new CakeCache(10, Duration.ofMinutes(1)));
+
+    oven.bake(Recipe.prepare(new IdempotentIngredient("foo")));
+    oven.bake(Recipe.prepare(new IdempotentIngredient("foo")));
+    oven.bake(Recipe.prepare(new IdempotentIngredient("bar")));
+    oven.bake(Recipe.prepare(new EmptyIngredient()));
+    oven.bake(Recipe.prepare(new EmptyIngredient()));
+
+    verify(dispatcherSpy, times(4)).dispatch(anyString());
+  }
+
   @Test
   public void testBake_deserializesCake() {
     dispatcherSpy = spy(Dispatcher.class);
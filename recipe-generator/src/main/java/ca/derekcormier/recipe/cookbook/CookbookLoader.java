@@ -52,6 +52,7 @@ public class CookbookLoader {
     validateConstantNames(cookbook);
     validateNoDuplicateConstantNames(cookbook);
     validateDefaultKey(cookbook);
+    validateCakeKeys(cookbook);
   }
 
   private void validateEnums(Cookbook cookbook) {
@@ -235,6 +236,45 @@ public class CookbookLoader {
     }
   }
 
+  private void validateCakeKeys(Cookbook cookbook) {
+    for (Ingredient ingredient : cookbook.getIngredients()) {
+      List<String> names = new ArrayList<>();
+      if (ingredient.getReads() != null) {
+        names.addAll(ingredient.getReads());
+      }
+      if (ingredient.getPublishes() != null) {
+        names.addAll(ingredient.getPublishes());
+      }
+
+      for (String name : names) {
+        boolean isKey = ingredient.isKeyed() && "key".equals(name);
+        boolean isRequired =
+            ingredient.getRequired().stream()
+                .anyMatch(
+                    r ->
+                        r.getName().equals(name)
+                            && CookbookUtils.isCakeKeyType(r.getType(), cookbook));
+        boolean isOptional =
+            ingredient.getOptionals().stream()
+                .anyMatch(
+                    o ->
+                        o.getName().equals(name)
+                            && !o.isCompound()
+                            && CookbookUtils.isCakeKeyType(o.getType(), cookbook)
+                            && !(o.isRepeatable()
+                                && CookbookUtils.isArrayType(o.getType(), cookbook)));
+        if (!isKey && !isRequired && !isOptional) {
+          throw new RuntimeException(
+              "ingredient '"
+                  + ingredient.getName()
+                  + "' reads or publishes cake keys from '"
+                  + name
+                  + "', which is not its key or a string parameter");
+        }
+      }
+    }
+  }
+
   private void validateNoDuplicateEnumNames(Cookbook cookbook) {
     Set<String> enumNames =
         cookbook.getEnums().stream().map(Enum::getName).collect(Collectors.toSet());
@@ -49,6 +49,21 @@ public class CookbookUtils {
         || type instanceof ArrayType && isPrimitiveType(((ArrayType) type).getBaseType());
   }
 
+  /** Returns whether values of the type can be used as cake keys: strings or arrays of strings. */
+  public static boolean isCakeKeyType(String type, Cookbook cookbook) {
+    ParamType paramType = CookbookUtils.parseType(type, cookbook);
+    Type t = paramType.getType();
+    if (!paramType.isVararg() && t instanceof ArrayType) {
+      t = ((ArrayType) t).getBaseType();
+    }
+    return t instanceof PrimitiveType && ((PrimitiveType) t).getPrimitive() == Primitive.STRING;
+  }
+
+  public static boolean isArrayType(String type, Cookbook cookbook) {
+    ParamType paramType = CookbookUtils.parseType(type, cookbook);
+    return paramType.isVararg() || paramType.getType() instanceof ArrayType;
+  }
+
   public static boolean isNonPrimitive(String type, Cookbook cookbook) {
     Type t = CookbookUtils.parseType(type, cookbook).getType();
     return !CookbookUtils.isPrimitiveType(t) && !(t instanceof FlagType);
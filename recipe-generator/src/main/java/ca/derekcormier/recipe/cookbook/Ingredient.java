@@ -15,6 +15,9 @@ public class Ingredient {
   private final List<Initializer> initializers;
   private final List<Optional> optionals;
   private final Map<String, String> constants;
+  private final List<String> reads;
+  private final List<String> publishes;
+  private final boolean idempotent;
 
   @JsonCreator
   public Ingredient(
@@ -24,7 +27,10 @@ public class Ingredient {
       @JsonProperty(value = "required") List<Required> required,
       @JsonProperty(value = "initializers") List<Initializer> initializers,
       @JsonProperty(value = "optionals") List<Optional> optionals,
-      @JsonProperty(value = "constants") Map<String, String> constants) {
+      @JsonProperty(value = "constants") Map<String, String> constants,
+      @JsonProperty(value = "reads") List<String> reads,
+      @JsonProperty(value = "publishes") List<String> publishes,
+      @JsonProperty(value = "idempotent") boolean idempotent) {
     this.name = name;
     this.keyed = keyed;
     this.defaultKey = defaultKey;
@@ -32,6 +38,10 @@ public class Ingredient {
     this.initializers = initializers == null ? new ArrayList<>() : initializers;
     this.optionals = optionals == null ? new ArrayList<>() : optionals;
     this.constants = constants == null ? new HashMap<>() : constants;
+    // left null when undeclared, since that means the ingredient may read or publish any key
+    this.reads = reads;
+    this.publishes = publishes;
+    this.idempotent = idempotent;
   }
 
   public String getName() {
@@ -61,4 +71,16 @@ public class Ingredient {
   public Map<String, String> getConstants() {
     return constants;
   }
+
+  public List<String> getReads() {
+    return reads;
+  }
+
+  public List<String> getPublishes() {
+    return publishes;
+  }
+
+  public boolean isIdempotent() {
+    return idempotent;
+  }
 }
@@ -1,11 +1,14 @@
 package ca.derekcormier.recipe.generator;
 
 import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.generator.filter.JavaDefaultFilter;
 import ca.derekcormier.recipe.generator.filter.JavaGetterFilter;
 import ca.derekcormier.recipe.generator.filter.JavaIdentifierFilter;
 import ca.derekcormier.recipe.generator.filter.JavaParamFilter;
+import ca.derekcormier.recipe.generator.filter.JavaReaderFilter;
 import ca.derekcormier.recipe.generator.filter.JavaTypeFilter;
 import ca.derekcormier.recipe.generator.filter.JavaValueFilter;
+import ca.derekcormier.recipe.generator.filter.JavaWriterFilter;
 import com.google.googlejavaformat.java.Formatter;
 import com.google.googlejavaformat.java.FormatterException;
 import com.google.googlejavaformat.java.JavaFormatterOptions;
@@ -30,7 +33,10 @@ public abstract class JavaGenerator extends Generator {
         javaIdentifierFilter,
         new JavaParamFilter(getCookbook(), javaTypeFilter, javaIdentifierFilter),
         new JavaValueFilter(getCookbook()),
-        new JavaGetterFilter());
+        new JavaGetterFilter(),
+        new JavaDefaultFilter(getCookbook(), javaTypeFilter),
+        new JavaReaderFilter(getCookbook(), javaTypeFilter),
+        new JavaWriterFilter(getCookbook()));
   }
 
   @Override
@@ -1,10 +1,13 @@
 package ca.derekcormier.recipe.generator;
 
 import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.CookbookUtils;
 import ca.derekcormier.recipe.cookbook.Ingredient;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class JavaIngredientGenerator extends JavaGenerator {
@@ -34,6 +37,10 @@ public class JavaIngredientGenerator extends JavaGenerator {
       Map<String, Object> info = new HashMap<>();
       info.put("constantKeys", getConstantKeyValueArrays(ingredient).get(0));
       info.put("constantValues", getConstantKeyValueArrays(ingredient).get(1));
+      info.put("declaresReadKeys", ingredient.getReads() != null);
+      info.put("readKeys", getCakeKeyFields(ingredient, ingredient.getReads()));
+      info.put("declaresPublishedKeys", ingredient.getPublishes() != null);
+      info.put("publishedKeys", getCakeKeyFields(ingredient, ingredient.getPublishes()));
 
       Map<String, Object> data = new HashMap<>();
       data.put("ingredient", ingredient);
@@ -66,4 +73,44 @@ public class JavaIngredientGenerator extends JavaGenerator {
       System.out.println("  -> " + enumeration.getName() + ".java");
     }
   }
+
+  // Describes the fields holding the cake keys an ingredient reads or publishes, for the template
+  // to collect: the ingredient's key, or a string or string array parameter, or a repeatable one.
+  private List<Map<String, Object>> getCakeKeyFields(Ingredient ingredient, List<String> names) {
+    List<Map<String, Object>> fields = new ArrayList<>();
+    if (names == null) {
+      return fields;
+    }
+
+    Cookbook cookbook = getCookbook();
+    for (String name : names) {
+      boolean isKey = ingredient.isKeyed() && "key".equals(name);
+      boolean isArray =
+          !isKey
+              && (ingredient.getRequired().stream()
+                      .anyMatch(
+                          r ->
+                              r.getName().equals(name)
+                                  && CookbookUtils.isArrayType(r.getType(), cookbook))
+                  || ingredient.getOptionals().stream()
+                      .anyMatch(
+                          o ->
+                              o.getName().equals(name)
+                                  && (o.isRepeatable()
+                                      || CookbookUtils.isArrayType(o.getType(), cookbook))));
+
+      boolean isRepeatable =
+          !isKey
+              && ingredient.getOptionals().stream()
+                  .anyMatch(o -> o.getName().equals(name) && o.isRepeatable());
+
+      Map<String, Object> field = new HashMap<>();
+      field.put("name", name);
+      field.put("key", isKey);
+      field.put("array", isArray);
+      field.put("repeatable", isRepeatable);
+      fields.add(field);
+    }
+    return fields;
+  }
 }
@@ -0,0 +1,60 @@
+package ca.derekcormier.recipe.generator.filter;
+
+import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.CookbookUtils;
+import ca.derekcormier.recipe.cookbook.type.EnumType;
+import ca.derekcormier.recipe.cookbook.type.FlagType;
+import ca.derekcormier.recipe.cookbook.type.ParamType;
+import ca.derekcormier.recipe.cookbook.type.PrimitiveType;
+import ca.derekcormier.recipe.cookbook.type.Type;
+import liqp.filters.Filter;
+
+public class JavaDefaultFilter extends RecipeFilter {
+  private final Filter javaTypeFilter;
+
+  public JavaDefaultFilter(Cookbook cookbook, Filter javaTypeFilter) {
+    super("javadefault", cookbook);
+    this.javaTypeFilter = javaTypeFilter;
+  }
+
+  @Override
+  public Object apply(Object value, Object... params) {
+    ParamType type = CookbookUtils.parseType(super.asString(value), getCookbook());
+    boolean repeatable = params.length > 0 && super.asBoolean(params[0]);
+
+    String javaType = (String) javaTypeFilter.apply(value, true);
+    if (repeatable) {
+      javaType += "[]";
+    }
+    if (repeatable || javaType.endsWith("[]")) {
+      int dimension = javaType.indexOf("[]");
+      return "new "
+          + javaType.substring(0, dimension)
+          + "[0]"
+          + javaType.substring(dimension + "[]".length());
+    }
+    return toDefaultValue(type.getType(), javaType);
+  }
+
+  private String toDefaultValue(Type type, String javaType) {
+    if (type instanceof PrimitiveType) {
+      switch (((PrimitiveType) type).getPrimitive()) {
+        case BOOLEAN:
+          return "false";
+        case INTEGER:
+          return "0";
+        case FLOAT:
+          return "0.0f";
+        case STRING:
+          return "null";
+        default:
+          throw new RuntimeException("unknown type");
+      }
+    } else if (type instanceof FlagType) {
+      return "false";
+    } else if (type instanceof EnumType) {
+      return javaType + ".values()[0]";
+    }
+    throw new RuntimeException("unknown type");
+  }
+}
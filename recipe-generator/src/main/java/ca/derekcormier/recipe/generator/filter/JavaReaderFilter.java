@@ -0,0 +1,45 @@
+package ca.derekcormier.recipe.generator.filter;
+
+import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.CookbookUtils;
+import ca.derekcormier.recipe.cookbook.type.FlagType;
+import ca.derekcormier.recipe.cookbook.type.ParamType;
+import ca.derekcormier.recipe.cookbook.type.PrimitiveType;
+import liqp.filters.Filter;
+
+public class JavaReaderFilter extends RecipeFilter {
+  private final Filter javaTypeFilter;
+
+  public JavaReaderFilter(Cookbook cookbook, Filter javaTypeFilter) {
+    super("javareader", cookbook);
+    this.javaTypeFilter = javaTypeFilter;
+  }
+
+  @Override
+  public Object apply(Object value, Object... params) {
+    ParamType type = CookbookUtils.parseType(super.asString(value), getCookbook());
+    boolean repeatable = params.length > 0 && super.asBoolean(params[0]);
+
+    if (!repeatable && !type.isVararg()) {
+      if (type.getType() instanceof FlagType) {
+        return "readBoolean()";
+      } else if (type.getType() instanceof PrimitiveType) {
+        switch (((PrimitiveType) type.getType()).getPrimitive()) {
+          case BOOLEAN:
+            return "readBoolean()";
+          case INTEGER:
+            return "readInt()";
+          case FLOAT:
+            return "readFloat()";
+          case STRING:
+            return "readString()";
+          default:
+            throw new RuntimeException("unknown type");
+        }
+      }
+    }
+
+    String javaType = (String) javaTypeFilter.apply(value, true);
+    return "read(" + javaType + (repeatable ? "[]" : "") + ".class)";
+  }
+}
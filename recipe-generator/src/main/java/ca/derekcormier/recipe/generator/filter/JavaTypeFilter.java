@@ -17,10 +17,14 @@ public class JavaTypeFilter extends RecipeFilter {
   @Override
   public Object apply(Object value, Object... params) {
     ParamType type = CookbookUtils.parseType(super.asString(value), getCookbook());
-    return toJavaType(type, params.length > 0 && super.asBoolean(params[0]));
+    return toJavaType(
+        type,
+        params.length > 0 && super.asBoolean(params[0]),
+        params.length > 1 && super.asBoolean(params[1]));
   }
 
-  private String toJavaType(ParamType type, boolean varargAsArray) {
+  // boxed types are for type arguments, such as the element type of a repeatable optional's list
+  private String toJavaType(ParamType type, boolean varargAsArray, boolean boxed) {
     String javaType = _toJavaType(type.getType());
     if (type.isVararg()) {
       if (varargAsArray) {
@@ -29,7 +33,20 @@ public class JavaTypeFilter extends RecipeFilter {
         javaType += "...";
       }
     }
-    return javaType;
+    return boxed ? box(javaType) : javaType;
+  }
+
+  private static String box(String javaType) {
+    switch (javaType) {
+      case "boolean":
+        return "Boolean";
+      case "int":
+        return "Integer";
+      case "float":
+        return "Float";
+      default:
+        return javaType;
+    }
   }
 
   private String _toJavaType(Type type) {
@@ -0,0 +1,39 @@
+package ca.derekcormier.recipe.generator.filter;
+
+import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.CookbookUtils;
+import ca.derekcormier.recipe.cookbook.type.FlagType;
+import ca.derekcormier.recipe.cookbook.type.ParamType;
+import ca.derekcormier.recipe.cookbook.type.PrimitiveType;
+
+public class JavaWriterFilter extends RecipeFilter {
+  public JavaWriterFilter(Cookbook cookbook) {
+    super("javawriter", cookbook);
+  }
+
+  @Override
+  public Object apply(Object value, Object... params) {
+    ParamType type = CookbookUtils.parseType(super.asString(value), getCookbook());
+    boolean repeatable = params.length > 0 && super.asBoolean(params[0]);
+
+    if (!repeatable && !type.isVararg()) {
+      if (type.getType() instanceof FlagType) {
+        return "writeBoolean";
+      } else if (type.getType() instanceof PrimitiveType) {
+        switch (((PrimitiveType) type.getType()).getPrimitive()) {
+          case BOOLEAN:
+            return "writeBoolean";
+          case INTEGER:
+            return "writeInt";
+          case FLOAT:
+            return "writeFloat";
+          case STRING:
+            return "writeString";
+          default:
+            throw new RuntimeException("unknown type");
+        }
+      }
+    }
+    return "write";
+  }
+}
@@ -2,10 +2,12 @@ package ca.derekcormier.recipe.cookbook;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -1167,6 +1169,95 @@ public class CookbookLoaderTest {
     assertEquals("required", cookbook.getIngredients().get(0).getDefaultKey());
   }
 
+  @Test
+  public void testLoad_cakeKeys() {
+    String yaml =
+        String.join(
+            "\n",
+            "domain: 'test'",
+            "ingredients:",
+            "  - name: 'ingredient'",
+            "    keyed: true",
+            "    reads: [owner, tags]",
+            "    publishes: [key]",
+            "    required:",
+            "      - name: owner",
+            "        type: string",
+            "        default: foo",
+            "    optionals:",
+            "      - name: tags",
+            "        type: string",
+            "        repeatable: true");
+
+    Cookbook cookbook = loader.load(toStream(yaml));
+    assertEquals(Arrays.asList("owner", "tags"), cookbook.getIngredients().get(0).getReads());
+    assertEquals(Arrays.asList("key"), cookbook.getIngredients().get(0).getPublishes());
+  }
+
+  @Test
+  public void testLoad_idempotent() {
+    String yaml =
+        String.join(
+            "\n",
+            "domain: 'test'",
+            "ingredients:",
+            "  - name: 'ingredient'",
+            "    idempotent: true",
+            "  - name: 'other'");
+
+    Cookbook cookbook = loader.load(toStream(yaml));
+    assertTrue(cookbook.getIngredients().get(0).isIdempotent());
+    assertFalse(cookbook.getIngredients().get(1).isIdempotent());
+  }
+
+  @Test
+  public void testLoad_undeclaredCakeKeysAreNull() {
+    String yaml = String.join("\n", "domain: 'test'", "ingredients:", "  - name: 'ingredient'");
+
+    Cookbook cookbook = loader.load(toStream(yaml));
+    assertNull(cookbook.getIngredients().get(0).getReads());
+    assertNull(cookbook.getIngredients().get(0).getPublishes());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testLoad_throwsOnCakeKeyNotAParam() {
+    String yaml =
+        String.join(
+            "\n", "domain: 'test'", "ingredients:", "  - name: 'ingredient'", "    reads: [foo]");
+
+    loader.load(toStream(yaml));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testLoad_throwsOnCakeKeyNotAStringParam() {
+    String yaml =
+        String.join(
+            "\n",
+            "domain: 'test'",
+            "ingredients:",
+            "  - name: 'ingredient'",
+            "    publishes: [required]",
+            "    required:",
+            "      - name: required",
+            "        type: int",
+            "        default: 0");
+
+    loader.load(toStream(yaml));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testLoad_throwsOnKeyOfUnkeyedIngredientAsCakeKey() {
+    String yaml =
+        String.join(
+            "\n",
+            "domain: 'test'",
+            "ingredients:",
+            "  - name: 'ingredient'",
+            "    publishes: [key]");
+
+    loader.load(toStream(yaml));
+  }
+
   private InputStream toStream(String str) {
     return new ByteArrayInputStream(str.getBytes());
   }
@@ -0,0 +1,96 @@
+package ca.derekcormier.recipe.generator.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.Enum;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import liqp.filters.Filter;
+import org.junit.Test;
+
+public class JavaDefaultFilterTest {
+  @Test
+  public void testApply_integer() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("0", filter.apply("int"));
+  }
+
+  @Test
+  public void testApply_float() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("0.0f", filter.apply("float"));
+  }
+
+  @Test
+  public void testApply_boolean() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("false", filter.apply("boolean"));
+  }
+
+  @Test
+  public void testApply_flag() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("false", filter.apply("flag"));
+  }
+
+  @Test
+  public void testApply_string() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("null", filter.apply("string"));
+  }
+
+  @Test
+  public void testApply_enum() {
+    Cookbook cookbook =
+        new Cookbook(
+            "test",
+            new ArrayList<>(),
+            Lists.newArrayList(new Enum("MyEnum", Lists.newArrayList("A"))));
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("MyEnum.values()[0]", filter.apply("MyEnum"));
+  }
+
+  @Test
+  public void testApply_array() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("new String[0]", filter.apply("string[]"));
+  }
+
+  @Test
+  public void testApply_vararg() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("new int[0]", filter.apply("int..."));
+  }
+
+  @Test
+  public void testApply_repeatable() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("new boolean[0]", filter.apply("boolean", true));
+  }
+
+  @Test
+  public void testApply_repeatableArray() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaDefaultFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("new int[0][]", filter.apply("int[]", true));
+  }
+}
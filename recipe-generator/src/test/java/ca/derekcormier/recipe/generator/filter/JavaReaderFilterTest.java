@@ -0,0 +1,88 @@
+package ca.derekcormier.recipe.generator.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.Enum;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import liqp.filters.Filter;
+import org.junit.Test;
+
+public class JavaReaderFilterTest {
+  @Test
+  public void testApply_integer() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("readInt()", filter.apply("int"));
+  }
+
+  @Test
+  public void testApply_float() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("readFloat()", filter.apply("float"));
+  }
+
+  @Test
+  public void testApply_boolean() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("readBoolean()", filter.apply("boolean"));
+  }
+
+  @Test
+  public void testApply_flag() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("readBoolean()", filter.apply("flag"));
+  }
+
+  @Test
+  public void testApply_string() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("readString()", filter.apply("string"));
+  }
+
+  @Test
+  public void testApply_enum() {
+    Cookbook cookbook =
+        new Cookbook(
+            "test",
+            new ArrayList<>(),
+            Lists.newArrayList(new Enum("MyEnum", Lists.newArrayList("A"))));
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("read(MyEnum.class)", filter.apply("MyEnum"));
+  }
+
+  @Test
+  public void testApply_array() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("read(String[].class)", filter.apply("string[]"));
+  }
+
+  @Test
+  public void testApply_vararg() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("read(int[].class)", filter.apply("int..."));
+  }
+
+  @Test
+  public void testApply_repeatable() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaReaderFilter(cookbook, new JavaTypeFilter(cookbook));
+
+    assertEquals("read(boolean[].class)", filter.apply("boolean", true));
+  }
+}
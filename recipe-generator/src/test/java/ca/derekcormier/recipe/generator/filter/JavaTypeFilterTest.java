@@ -109,4 +109,15 @@ public class JavaTypeFilterTest {
 
     assertEquals("String[][]", filter.apply("string[]...", true));
   }
+
+  @Test
+  public void testApply_boxesPrimitive() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaTypeFilter(cookbook);
+
+    assertEquals("Integer", filter.apply("int", true, true));
+    assertEquals("Boolean", filter.apply("flag", true, true));
+    assertEquals("int[]", filter.apply("int...", true, true));
+    assertEquals("String", filter.apply("string", true, true));
+  }
 }
@@ -0,0 +1,88 @@
+package ca.derekcormier.recipe.generator.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.derekcormier.recipe.cookbook.Cookbook;
+import ca.derekcormier.recipe.cookbook.Enum;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import liqp.filters.Filter;
+import org.junit.Test;
+
+public class JavaWriterFilterTest {
+  @Test
+  public void testApply_integer() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("writeInt", filter.apply("int"));
+  }
+
+  @Test
+  public void testApply_float() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("writeFloat", filter.apply("float"));
+  }
+
+  @Test
+  public void testApply_boolean() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("writeBoolean", filter.apply("boolean"));
+  }
+
+  @Test
+  public void testApply_flag() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("writeBoolean", filter.apply("flag"));
+  }
+
+  @Test
+  public void testApply_string() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("writeString", filter.apply("string"));
+  }
+
+  @Test
+  public void testApply_enum() {
+    Cookbook cookbook =
+        new Cookbook(
+            "test",
+            new ArrayList<>(),
+            Lists.newArrayList(new Enum("MyEnum", Lists.newArrayList("A"))));
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("write", filter.apply("MyEnum"));
+  }
+
+  @Test
+  public void testApply_array() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("write", filter.apply("string[]"));
+  }
+
+  @Test
+  public void testApply_vararg() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("write", filter.apply("int..."));
+  }
+
+  @Test
+  public void testApply_repeatable() {
+    Cookbook cookbook = new Cookbook("test", new ArrayList<>(), new ArrayList<>());
+    Filter filter = new JavaWriterFilter(cookbook);
+
+    assertEquals("write", filter.apply("boolean", true));
+  }
+}
@@ -0,0 +1,92 @@
+package ca.derekcormier.recipe;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/** Backend hooks for the ingredients in {@link BenchmarkRecipes}. */
+final class BenchmarkHooks {
+  private BenchmarkHooks() {}
+
+  static BackendOven backendOven() {
+    BackendOven backendOven = new BackendOven();
+    backendOven.registerHook(new CustomerHook());
+    backendOven.registerHook(new ProductHook());
+    backendOven.registerHook(new PurchaseOrderHook());
+    return backendOven;
+  }
+
+  // publishes a record shaped roughly like a persisted entity so that cakes grow realistically
+  private static Map<String, Object> record(String name) {
+    Map<String, Object> record = new HashMap<>();
+    record.put("id", UUID.randomUUID().toString());
+    record.put("name", name);
+    record.put("createdBy", "recipe-benchmarks");
+    record.put("version", 1);
+    return record;
+  }
+
+  public static class CustomerData extends KeyedIngredient {
+    public CustomerData() {
+      super("Customer", BenchmarkRecipes.ACCOUNTS);
+    }
+
+    public String getName() {
+      return getProperty("name");
+    }
+  }
+
+  public static class ProductData extends Ingredient {
+    public ProductData() {
+      super("Product", BenchmarkRecipes.CATALOGUE);
+    }
+
+    public String getName() {
+      return getProperty("name");
+    }
+  }
+
+  public static class PurchaseOrderData extends Ingredient {
+    public PurchaseOrderData() {
+      super("PurchaseOrder", BenchmarkRecipes.ORDERS);
+    }
+
+    public String getProduct() {
+      return getProperty("product");
+    }
+  }
+
+  static class CustomerHook extends BaseIngredientHook<CustomerData> {
+    CustomerHook() {
+      super("Customer", CustomerData.class);
+    }
+
+    @Override
+    public void bake(CustomerData data, Cake cake) {
+      cake.publish(data.getKey(), record(data.getName()));
+    }
+  }
+
+  static class ProductHook extends BaseIngredientHook<ProductData> {
+    ProductHook() {
+      super("Product", ProductData.class);
+    }
+
+    @Override
+    public void bake(ProductData data, Cake cake) {
+      cake.publish(data.getName(), record(data.getName()));
+    }
+  }
+
+  static class PurchaseOrderHook extends BaseIngredientHook<PurchaseOrderData> {
+    PurchaseOrderHook() {
+      super("PurchaseOrder", PurchaseOrderData.class);
+    }
+
+    @Override
+    public void bake(PurchaseOrderData data, Cake cake) {
+      Map<String, Object> product = cake.get(data.getProduct());
+      cake.publish("order-" + data.getProduct(), record((String) product.get("id")));
+    }
+  }
+}
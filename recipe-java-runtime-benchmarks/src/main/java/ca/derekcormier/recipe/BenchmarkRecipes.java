@@ -0,0 +1,73 @@
+package ca.derekcormier.recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Representative ingredients and recipe shapes shared by the benchmarks. */
+final class BenchmarkRecipes {
+  static final String ACCOUNTS = "Accounts";
+  static final String CATALOGUE = "Catalogue";
+  static final String ORDERS = "Orders";
+
+  private BenchmarkRecipes() {}
+
+  /** A catalogue of products followed by customers that each place orders for them. */
+  static Recipe shop(int customers, int ordersPerCustomer) {
+    List<Ingredient> ingredients = new ArrayList<>();
+    for (int i = 0; i < ordersPerCustomer; i++) {
+      ingredients.add(new Product("product-" + i, 9.99f + i).withAvailability("CANADA", "TAIWAN"));
+    }
+    for (int i = 0; i < customers; i++) {
+      Ingredient[] orders = new Ingredient[ordersPerCustomer];
+      for (int j = 0; j < ordersPerCustomer; j++) {
+        orders[j] = new PurchaseOrder("product-" + j, j + 1).withExpressShipping(j % 2 == 0);
+      }
+      ingredients.add(Recipe.context(new Customer("customer-" + i), orders));
+    }
+    return Recipe.prepare(ingredients.toArray(new Ingredient[0]));
+  }
+
+  static class Customer extends KeyedIngredient {
+    Customer(String name) {
+      super("Customer", ACCOUNTS);
+      setRequired("name", name);
+      setKey(name);
+    }
+  }
+
+  static class Product extends Ingredient {
+    Product(String name, float price) {
+      super("Product", CATALOGUE);
+      setRequired("name", name);
+      setRequired("price", price);
+    }
+
+    private Product(Product other) {
+      super(other);
+    }
+
+    Product withAvailability(String... regions) {
+      Product copy = new Product(this);
+      copy.setOptional("availability", false, regions);
+      return copy;
+    }
+  }
+
+  static class PurchaseOrder extends Ingredient {
+    PurchaseOrder(String product, int quantity) {
+      super("PurchaseOrder", ORDERS);
+      setRequired("product", product);
+      setRequired("quantity", quantity);
+    }
+
+    private PurchaseOrder(PurchaseOrder other) {
+      super(other);
+    }
+
+    PurchaseOrder withExpressShipping(boolean expressShipping) {
+      PurchaseOrder copy = new PurchaseOrder(this);
+      copy.setOptional("expressShipping", false, expressShipping);
+      return copy;
+    }
+  }
+}
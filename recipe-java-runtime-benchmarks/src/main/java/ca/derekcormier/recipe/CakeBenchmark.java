@@ -0,0 +1,76 @@
+package ca.derekcormier.recipe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cake operations hooks call most: getting a key from the root, getting a key that is
+ * found in an ancestor of the current namespace, publishing, entering a namespace and copying. Run
+ * with {@code -prof gc} to see the allocation rate of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CakeBenchmark {
+  @Param({"100", "5000"})
+  public int customers;
+
+  private Cake cake;
+  private Runnable getFromAncestor;
+  private final Runnable noop = () -> {};
+
+  @Setup
+  public void setup(Blackhole blackhole) {
+    cake = new Cake();
+    cake.publish("catalogue", "products");
+    for (int i = 0; i < customers; i++) {
+      int customer = i;
+      cake.inNamespace(
+          "customer-" + i,
+          () -> {
+            cake.publish("order", customer);
+            cake.publish("address.city", "Vancouver");
+          });
+    }
+    getFromAncestor = () -> blackhole.consume(cake.<Object>get("catalogue"));
+  }
+
+  @Benchmark
+  public Object get() {
+    return cake.get("customer-7", "order");
+  }
+
+  @Benchmark
+  public void getInNamespace() {
+    cake.inNamespace("customer-7.address", getFromAncestor);
+  }
+
+  @Benchmark
+  public void publish() {
+    cake.publish("customer-7.order", 7);
+  }
+
+  @Benchmark
+  public void inNamespace() {
+    cake.inNamespace("customer-7", noop);
+  }
+
+  @Benchmark
+  public Cake copy() {
+    return new Cake(cake);
+  }
+}
@@ -0,0 +1,91 @@
+package ca.derekcormier.recipe;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bakes a long, domain-alternating recipe against a local backend oven with full and delta cake
+ * responses, reporting the request and response bytes per segment and the time the backend oven
+ * spends on each segment alongside the bake time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeltaPayloadBenchmark {
+  @Param({"false", "true"})
+  public boolean delta;
+
+  @Param({"10", "50"})
+  public int customers;
+
+  private Recipe recipe;
+  private BackendOven backendOven;
+
+  @Setup
+  public void setup() {
+    recipe = BenchmarkRecipes.shop(customers, 3);
+    backendOven = BenchmarkHooks.backendOven();
+  }
+
+  @Benchmark
+  public Cake bake(PayloadBytes bytes) {
+    Oven oven = new Oven(bytes.serializationContext);
+    oven.setDeltaPayloads(delta);
+    oven.setDefaultDispatcher(
+        payload -> {
+          long start = System.nanoTime();
+          String response = backendOven.bake(payload);
+          bytes.record(payload, response, System.nanoTime() - start);
+          return response;
+        });
+    return oven.bake(recipe);
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PayloadBytes {
+    public double requestBytesPerSegment;
+    public double responseBytesPerSegment;
+    public double backendMicrosPerSegment;
+
+    private final SerializationContext serializationContext = new SerializationContext();
+    private long segments;
+    private long requestBytes;
+    private long responseBytes;
+    private long backendNanos;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      segments = 0;
+      requestBytes = 0;
+      responseBytes = 0;
+      backendNanos = 0;
+    }
+
+    void record(String request, String response, long nanos) {
+      segments++;
+      requestBytes += request.getBytes(StandardCharsets.UTF_8).length;
+      responseBytes += response.getBytes(StandardCharsets.UTF_8).length;
+      backendNanos += nanos;
+      requestBytesPerSegment = (double) requestBytes / segments;
+      responseBytesPerSegment = (double) responseBytes / segments;
+      backendMicrosPerSegment = backendNanos / 1000.0 / segments;
+    }
+  }
+}
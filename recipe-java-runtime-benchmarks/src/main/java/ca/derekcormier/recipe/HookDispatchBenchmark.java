@@ -0,0 +1,130 @@
+package ca.derekcormier.recipe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bakes a payload of thousands of small ingredients whose hooks do no work, so that the time is
+ * spent deserializing the ingredients and dispatching each one to its hook. The ingredient types
+ * alternate, so each ingredient is dispatched on its own rather than as part of a batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HookDispatchBenchmark {
+  private static final int TYPES = 8;
+
+  @Param({"1000", "10000"})
+  public int ingredients;
+
+  private BackendOven backendOven;
+  private String payload;
+
+  @Setup
+  public void setup() {
+    backendOven = new BackendOven();
+    for (int type = 0; type < TYPES; type++) {
+      backendOven.registerHook(new SmallHook("Small" + type));
+    }
+
+    StringBuilder json = new StringBuilder("{\"recipe\":{\"Recipe\":{\"ingredients\":[");
+    for (int i = 0; i < ingredients; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"Small").append(i % TYPES).append("\":{\"n\":").append(i).append("}}");
+    }
+    payload = json.append("]}}}").toString();
+  }
+
+  @Benchmark
+  public String bake() {
+    return backendOven.bake(payload);
+  }
+
+  public static class SmallData extends Ingredient {
+    public SmallData(String ingredientType) {
+      super(ingredientType);
+    }
+  }
+
+  // the eight ingredient types need their own data classes for jackson to tell them apart
+  public static class Small0Data extends SmallData {
+    public Small0Data() {
+      super("Small0");
+    }
+  }
+
+  public static class Small1Data extends SmallData {
+    public Small1Data() {
+      super("Small1");
+    }
+  }
+
+  public static class Small2Data extends SmallData {
+    public Small2Data() {
+      super("Small2");
+    }
+  }
+
+  public static class Small3Data extends SmallData {
+    public Small3Data() {
+      super("Small3");
+    }
+  }
+
+  public static class Small4Data extends SmallData {
+    public Small4Data() {
+      super("Small4");
+    }
+  }
+
+  public static class Small5Data extends SmallData {
+    public Small5Data() {
+      super("Small5");
+    }
+  }
+
+  public static class Small6Data extends SmallData {
+    public Small6Data() {
+      super("Small6");
+    }
+  }
+
+  public static class Small7Data extends SmallData {
+    public Small7Data() {
+      super("Small7");
+    }
+  }
+
+  private static class SmallHook extends BaseIngredientHook<SmallData> {
+    @SuppressWarnings("unchecked")
+    SmallHook(String ingredientName) {
+      super(ingredientName, (Class<SmallData>) dataClass(ingredientName));
+    }
+
+    private static Class<?> dataClass(String ingredientName) {
+      try {
+        return Class.forName(HookDispatchBenchmark.class.getName() + "$" + ingredientName + "Data");
+      } catch (ClassNotFoundException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    @Override
+    public void bake(SmallData ingredient, Cake cake) {}
+  }
+}
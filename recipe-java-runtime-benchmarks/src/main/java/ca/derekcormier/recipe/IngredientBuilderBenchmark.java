@@ -0,0 +1,74 @@
+package ca.derekcormier.recipe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds a recipe of ingredients decorated with many optionals, half of them repeatable, through
+ * with* methods that copy the ingredient the way map-backed ingredients do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngredientBuilderBenchmark {
+  private static final int INGREDIENTS = 100;
+
+  @Param({"10", "50"})
+  public int optionals;
+
+  @Benchmark
+  public Recipe build() {
+    Ingredient[] ingredients = new Ingredient[INGREDIENTS];
+    for (int i = 0; i < INGREDIENTS; i++) {
+      DecoratedIngredient ingredient = new DecoratedIngredient("ingredient-" + i);
+      for (int j = 0; j < optionals; j++) {
+        ingredient = j % 2 == 0 ? ingredient.withOption(j, i) : ingredient.withTag("tag-" + j);
+      }
+      ingredients[i] = ingredient;
+    }
+    return Recipe.prepare(ingredients);
+  }
+
+  static class DecoratedIngredient extends Ingredient {
+    private static final String[] OPTIONS = new String[64];
+
+    static {
+      for (int i = 0; i < OPTIONS.length; i++) {
+        OPTIONS[i] = "option" + i;
+      }
+    }
+
+    DecoratedIngredient(String name) {
+      super("DecoratedIngredient", "A");
+      setRequired("name", name);
+    }
+
+    private DecoratedIngredient(DecoratedIngredient other) {
+      super(other);
+    }
+
+    DecoratedIngredient withOption(int option, int value) {
+      DecoratedIngredient copy = new DecoratedIngredient(this);
+      copy.setOptional(OPTIONS[option], false, value);
+      return copy;
+    }
+
+    DecoratedIngredient withTag(String tag) {
+      DecoratedIngredient copy = new DecoratedIngredient(this);
+      copy.setOptional("tag", true, tag);
+      return copy;
+    }
+  }
+}
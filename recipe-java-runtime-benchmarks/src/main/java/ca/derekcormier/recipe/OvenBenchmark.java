@@ -0,0 +1,56 @@
+package ca.derekcormier.recipe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares baking with a fresh serialization context (cold, as every bake used to be) against
+ * baking with an oven whose serialization context has already seen the recipe's ingredients (warm).
+ * Dispatchers return an empty cake so that only the oven's own work is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OvenBenchmark {
+  @Param({"1", "10"})
+  public int customers;
+
+  private Recipe recipe;
+  private Oven warmOven;
+
+  @Setup
+  public void setup() {
+    recipe = BenchmarkRecipes.shop(customers, 3);
+    warmOven = createOven(new SerializationContext());
+    warmOven.bake(recipe);
+  }
+
+  @Benchmark
+  public Cake coldBake() {
+    return createOven(new SerializationContext()).bake(recipe);
+  }
+
+  @Benchmark
+  public Cake warmBake() {
+    return warmOven.bake(recipe);
+  }
+
+  private static Oven createOven(SerializationContext context) {
+    Oven oven = new Oven(context);
+    oven.setDefaultDispatcher(payload -> "{}");
+    return oven;
+  }
+}
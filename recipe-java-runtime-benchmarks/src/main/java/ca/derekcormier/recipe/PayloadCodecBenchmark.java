@@ -0,0 +1,111 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding and decoding a representative payload and its baked cake with each payload
+ * codec, reporting the encoded sizes alongside the times. Payloads are encoded as the oven sends
+ * them and decoded as the backend oven receives them, and cakes the other way around.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadCodecBenchmark {
+  @Param({"JSON", "SMILE"})
+  public String codecName;
+
+  @Param({"1", "50"})
+  public int customers;
+
+  private PayloadCodec codec;
+  private ObjectMapper ovenMapper;
+  private ObjectMapper backendMapper;
+  private Payload payload;
+  private Cake cake;
+  private byte[] encodedPayload;
+  private byte[] encodedCake;
+
+  @Setup
+  public void setup() throws IOException {
+    codec = "SMILE".equals(codecName) ? PayloadCodec.SMILE : PayloadCodec.JSON;
+
+    Recipe recipe = BenchmarkRecipes.shop(customers, 3);
+    ovenMapper = new SerializationContext().getObjectMapper(recipe);
+    backendMapper = new ObjectMapper();
+    backendMapper.registerSubtypes(
+        new NamedType(Recipe.class, "Recipe"),
+        new NamedType(BenchmarkHooks.CustomerData.class, "Customer"),
+        new NamedType(BenchmarkHooks.ProductData.class, "Product"),
+        new NamedType(BenchmarkHooks.PurchaseOrderData.class, "PurchaseOrder"));
+
+    cake = new Cake(new DirectDispatchOven(BenchmarkHooks.backendOven()).bake(recipe));
+    payload = new Payload(recipe, cake);
+    encodedPayload = encode(ovenMapper, payload);
+    encodedCake = encode(backendMapper, cake);
+  }
+
+  @Benchmark
+  public byte[] encodePayload() throws IOException {
+    return encode(ovenMapper, payload);
+  }
+
+  @Benchmark
+  public Payload decodePayload(EncodedBytes bytes) throws IOException {
+    bytes.payloadBytes = encodedPayload.length;
+    return decode(backendMapper, encodedPayload, Payload.class);
+  }
+
+  @Benchmark
+  public byte[] encodeCake() throws IOException {
+    return encode(backendMapper, cake);
+  }
+
+  @Benchmark
+  public Cake decodeCake(EncodedBytes bytes) throws IOException {
+    bytes.cakeBytes = encodedCake.length;
+    return decode(ovenMapper, encodedCake, Cake.class);
+  }
+
+  private byte[] encode(ObjectMapper objectMapper, Object value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonGenerator generator = codec.createGenerator(out)) {
+      objectMapper.writeValue(generator, value);
+    }
+    return out.toByteArray();
+  }
+
+  private <T> T decode(ObjectMapper objectMapper, byte[] bytes, Class<T> type) throws IOException {
+    try (JsonParser parser = codec.createParser(new ByteArrayInputStream(bytes))) {
+      return objectMapper.readValue(parser, type);
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedBytes {
+    public double payloadBytes;
+    public double cakeBytes;
+  }
+}
@@ -0,0 +1,146 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes the shop recipe built from map-backed ingredients against the same recipe built from
+ * ingredients with typed fields that write their own properties, as generated ingredients do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeSerializationBenchmark {
+  @Param({"10", "100"})
+  public int customers;
+
+  private Recipe mapRecipe;
+  private Recipe typedRecipe;
+  private ObjectMapper mapMapper;
+  private ObjectMapper typedMapper;
+
+  @Setup
+  public void setup() {
+    mapRecipe = BenchmarkRecipes.shop(customers, 3);
+    typedRecipe = typedShop(customers, 3);
+    mapMapper = new SerializationContext().getObjectMapper(mapRecipe);
+    typedMapper = new SerializationContext().getObjectMapper(typedRecipe);
+  }
+
+  @Benchmark
+  public String mapIngredients() throws JsonProcessingException {
+    return mapMapper.writeValueAsString(mapRecipe);
+  }
+
+  @Benchmark
+  public String typedIngredients() throws JsonProcessingException {
+    return typedMapper.writeValueAsString(typedRecipe);
+  }
+
+  private static Recipe typedShop(int customers, int ordersPerCustomer) {
+    List<Ingredient> ingredients = new ArrayList<>();
+    for (int i = 0; i < ordersPerCustomer; i++) {
+      ingredients.add(new Product("product-" + i, 9.99f + i).withAvailability("CANADA", "TAIWAN"));
+    }
+    for (int i = 0; i < customers; i++) {
+      Ingredient[] orders = new Ingredient[ordersPerCustomer];
+      for (int j = 0; j < ordersPerCustomer; j++) {
+        orders[j] = new PurchaseOrder("product-" + j, j + 1).withExpressShipping(j % 2 == 0);
+      }
+      ingredients.add(Recipe.context(new Customer("customer-" + i), orders));
+    }
+    return Recipe.prepare(ingredients.toArray(new Ingredient[0]));
+  }
+
+  static class Customer extends KeyedIngredient {
+    private final String name;
+
+    Customer(String name) {
+      super("Customer", BenchmarkRecipes.ACCOUNTS);
+      this.name = name;
+      setKey(name);
+    }
+
+    @Override
+    protected void writeProperties(PropertyWriter writer) throws IOException {
+      super.writeProperties(writer);
+      writer.writeString("name", name);
+    }
+  }
+
+  static class Product extends Ingredient {
+    private final String name;
+    private final float price;
+    private String[] availability;
+
+    Product(String name, float price) {
+      super("Product", BenchmarkRecipes.CATALOGUE);
+      this.name = name;
+      this.price = price;
+    }
+
+    Product withAvailability(String... regions) {
+      Product copy = new Product(name, price);
+      copy.availability = regions;
+      return copy;
+    }
+
+    @Override
+    protected void writeProperties(PropertyWriter writer) throws IOException {
+      super.writeProperties(writer);
+      writer.writeString("name", name);
+      writer.writeFloat("price", price);
+      if (availability != null) {
+        writer.write("availability", availability);
+      }
+    }
+  }
+
+  static class PurchaseOrder extends Ingredient {
+    private final String product;
+    private final int quantity;
+    private boolean expressShipping;
+    private boolean hasExpressShipping;
+
+    PurchaseOrder(String product, int quantity) {
+      super("PurchaseOrder", BenchmarkRecipes.ORDERS);
+      this.product = product;
+      this.quantity = quantity;
+    }
+
+    PurchaseOrder withExpressShipping(boolean expressShipping) {
+      PurchaseOrder copy = new PurchaseOrder(product, quantity);
+      copy.expressShipping = expressShipping;
+      copy.hasExpressShipping = true;
+      return copy;
+    }
+
+    @Override
+    protected void writeProperties(PropertyWriter writer) throws IOException {
+      super.writeProperties(writer);
+      writer.writeString("product", product);
+      writer.writeInt("quantity", quantity);
+      if (hasExpressShipping) {
+        writer.writeBoolean("expressShipping", expressShipping);
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package ca.derekcormier.recipe;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Splits recipes into per-domain segments. Wide recipes hold many contexts of ingredients that
+ * alternate between two domains; deep recipes nest contexts inside one another, switching domain at
+ * every level.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SegmentBenchmark {
+  @Param({"wide", "deep"})
+  public String shape;
+
+  @Param({"100", "1000"})
+  public int size;
+
+  private Recipe recipe;
+
+  @Setup
+  public void setUp() {
+    recipe = "wide".equals(shape) ? wideRecipe(size) : deepRecipe(size);
+  }
+
+  @Benchmark
+  public List<Recipe.Segment> compile() {
+    return SegmentPlan.compile(recipe).getSegments();
+  }
+
+  @Benchmark
+  public List<Recipe.Segment> cached() {
+    return recipe.segment();
+  }
+
+  private static Recipe wideRecipe(int size) {
+    Ingredient[] contexts = new Ingredient[size / 10];
+    for (int i = 0; i < contexts.length; i++) {
+      Ingredient[] ingredients = new Ingredient[10];
+      for (int j = 0; j < ingredients.length; j++) {
+        ingredients[j] = new TestIngredient(j % 2 == 0 ? "A" : "B");
+      }
+      contexts[i] = Recipe.context("context-" + i, ingredients);
+    }
+    return Recipe.prepare(contexts);
+  }
+
+  private static Recipe deepRecipe(int size) {
+    Recipe recipe = Recipe.prepare();
+    for (int depth = 0; depth < size; depth++) {
+      recipe =
+          Recipe.context(
+              "context-" + depth, new TestIngredient(depth % 2 == 0 ? "A" : "B"), recipe);
+    }
+    return Recipe.prepare(recipe);
+  }
+
+  static class TestIngredient extends Ingredient {
+    TestIngredient(String domain) {
+      super("TestIngredient", domain);
+    }
+  }
+}
@@ -1,11 +1,34 @@
 package ca.derekcormier.recipe;
 
+import java.util.Objects;
+
 public abstract class AbstractOven {
+  private Cake.ValueIndex valueIndex = Cake.ValueIndex.NONE;
+  private boolean concurrentCakes = false;
+
+  /**
+   * Sets how cakes created by this oven look up the key a value was published under; see {@link
+   * Cake.ValueIndex}. Without an index, each lookup compares the value against every entry.
+   */
+  public void setValueIndex(Cake.ValueIndex valueIndex) {
+    this.valueIndex = Objects.requireNonNull(valueIndex);
+  }
+
+  /**
+   * Sets whether cakes created by this oven are {@link ConcurrentCake}s, which hooks can publish to
+   * from several threads at once.
+   */
+  public void setConcurrentCakes(boolean concurrentCakes) {
+    this.concurrentCakes = concurrentCakes;
+  }
+
   protected Cake createCake() {
-    return new Cake();
+    return concurrentCakes ? new ConcurrentCake(valueIndex) : new Cake(valueIndex);
   }
 
   protected Cake createCake(Cake other) {
-    return new Cake(other);
+    Cake cake = createCake();
+    cake.putEntries(other);
+    return cake;
   }
 }
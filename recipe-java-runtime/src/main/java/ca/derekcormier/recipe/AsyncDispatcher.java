@@ -0,0 +1,19 @@
+package ca.derekcormier.recipe;
+
+import java.util.concurrent.CompletableFuture;
+
+@FunctionalInterface
+public interface AsyncDispatcher {
+  CompletableFuture<String> dispatch(String payload);
+
+  /** Adapts a synchronous dispatcher; the dispatch runs on the thread that requests it. */
+  static AsyncDispatcher of(Dispatcher dispatcher) {
+    return payload -> {
+      try {
+        return CompletableFuture.completedFuture(dispatcher.dispatch(payload));
+      } catch (RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    };
+  }
+}
@@ -1,59 +1,252 @@
 package ca.derekcormier.recipe;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.NamedType;
-import com.fasterxml.jackson.databind.jsontype.SubtypeResolver;
-import com.fasterxml.jackson.databind.jsontype.impl.StdSubtypeResolver;
-import java.util.HashMap;
-import java.util.Map;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+/**
+ * Bakes payloads sent by an {@link Oven} by invoking the registered hooks.
+ *
+ * <p>A backend oven can serve concurrent {@code bake} calls. Hooks can be registered at any time:
+ * each bake uses the hooks that were registered when it started, and a hook registered while a
+ * payload is baking is used from the next bake on. Other settings should be configured before the
+ * oven starts serving requests.
+ */
 public class BackendOven extends AbstractOven {
-  private final Map<String, BaseIngredientHook> hooks = new HashMap<>();
-  private final ObjectMapper objectMapper = new ObjectMapper();
-  private final SubtypeResolver subtypeResolver = new StdSubtypeResolver();
+  // replaced as a whole on each registration, so that bakes can read it without locking
+  private volatile HookRegistry hooks = HookRegistry.EMPTY;
+  private volatile Executor parallelExecutor;
 
-  public BackendOven() {
-    objectMapper.setSubtypeResolver(subtypeResolver);
-    subtypeResolver.registerSubtypes(new NamedType(Recipe.class, "Recipe"));
+  public String bake(String json) {
+    HookRegistry hooks = this.hooks;
+    StringWriter writer = new StringWriter();
+    try (JsonParser parser = hooks.getFactory().createParser(json);
+        JsonGenerator generator = hooks.getFactory().createGenerator(writer)) {
+      bake(parser, generator, hooks);
+    } catch (Exception e) {
+      throw new RuntimeException("payload serialization error", e);
+    }
+    return writer.toString();
   }
 
-  public String bake(String json) {
-    try {
-      Payload payload = objectMapper.readValue(json, Payload.class);
-      Cake cake = createCake(payload.getCake());
+  /**
+   * Bakes a json payload read from the input stream and writes the resulting cake to the output
+   * stream, without holding either as a string. Both single and batch payloads are accepted. The
+   * streams are left open for the caller to close.
+   */
+  public void bake(InputStream in, OutputStream out) {
+    bake(in, out, PayloadCodec.JSON);
+  }
 
-      bakeIngredient(payload.getRecipe(), cake);
+  /**
+   * Like {@link #bake(InputStream, OutputStream)}, but reads the payload and writes the cake with
+   * the given codec, typically chosen with {@link PayloadCodec#forContentType} from the request's
+   * content type.
+   */
+  public void bake(InputStream in, OutputStream out, PayloadCodec codec) {
+    try (JsonParser parser = codec.createParser(in);
+        JsonGenerator generator = codec.createGenerator(out)) {
+      bake(parser, generator, hooks);
+    } catch (Exception e) {
+      throw new RuntimeException("payload serialization error", e);
+    }
+  }
 
-      Cake cakeToSerialize = new Cake(cake);
-      return objectMapper.writeValueAsString(cakeToSerialize);
+  /**
+   * Bakes a batch payload (a json array of payloads, as sent by {@link Oven#bakeAll}) and returns a
+   * json array holding one cake per payload. Each payload is baked against its own cake.
+   */
+  public String bakeAll(String json) {
+    HookRegistry hooks = this.hooks;
+    try {
+      List<Payload> payloads = hooks.getPayloadListReader().readValue(json);
+      return hooks.getWriter().writeValueAsString(bakePayloads(payloads, hooks));
     } catch (Exception e) {
       throw new RuntimeException("payload serialization error", e);
     }
   }
 
-  public void registerHook(BaseIngredientHook hook) {
-    hooks.put(hook.getIngredientName(), hook);
-    subtypeResolver.registerSubtypes(new NamedType(hook.getDataClass(), hook.getIngredientName()));
+  /**
+   * Bakes consecutive sibling recipes that have a context concurrently on the given executor, or
+   * serially again if null. Each such recipe is baked against its own fork of the cake, and the
+   * forks are merged back in declaration order once all of them are done. The sibling recipes must
+   * not depend on each other's values; if two of them publish to the same key, baking fails.
+   *
+   * <p>Recipes containing an ingredient whose hook is not {@link BaseIngredientHook#isThreadSafe()
+   * thread-safe} are baked on the calling thread, one at a time. Recipes nested within a recipe
+   * that is baked concurrently are baked serially.
+   */
+  public void setParallelExecutor(Executor parallelExecutor) {
+    this.parallelExecutor = parallelExecutor;
+  }
+
+  public synchronized void registerHook(BaseIngredientHook hook) {
+    hooks = hooks.withHook(hook);
+  }
+
+  private Cake bakePayload(Payload payload, HookRegistry hooks) {
+    Cake cake = createCake(payload.getCake());
+    if (payload.isDelta()) {
+      cake.trackChanges();
+    }
+
+    Executor executor = parallelExecutor;
+    new Baker(hooks, executor).bakeIngredient(payload.getRecipe(), cake, executor != null);
+
+    Cake cakeToSerialize = new Cake();
+    if (payload.isDelta()) {
+      cakeToSerialize.putTrackedChanges(cake);
+    } else {
+      cakeToSerialize.putEntries(cake);
+    }
+    return cakeToSerialize;
+  }
+
+  private void bake(JsonParser parser, JsonGenerator generator, HookRegistry hooks)
+      throws IOException {
+    if (parser.nextToken() == JsonToken.START_ARRAY) {
+      List<Payload> payloads = hooks.getPayloadListReader().readValue(parser);
+      hooks.getWriter().writeValue(generator, bakePayloads(payloads, hooks));
+    } else {
+      Payload payload = hooks.getPayloadReader().readValue(parser);
+      hooks.getWriter().writeValue(generator, bakePayload(payload, hooks));
+    }
+  }
+
+  private List<Cake> bakePayloads(List<Payload> payloads, HookRegistry hooks) {
+    List<Cake> cakes = new ArrayList<>();
+    for (Payload payload : payloads) {
+      cakes.add(bakePayload(payload, hooks));
+    }
+    return cakes;
   }
 
-  private void bakeIngredient(Ingredient ingredient, Cake cake) {
-    if (ingredient instanceof Recipe) {
-      Recipe recipe = (Recipe) ingredient;
+  // Bakes the ingredients of one payload with the hooks and executor in effect when it started.
+  private static class Baker {
+    private final HookRegistry hooks;
+    private final Executor parallelExecutor;
+
+    Baker(HookRegistry hooks, Executor parallelExecutor) {
+      this.hooks = hooks;
+      this.parallelExecutor = parallelExecutor;
+    }
+
+    void bakeIngredient(Ingredient ingredient, Cake cake, boolean parallel) {
+      if (ingredient instanceof Recipe) {
+        Recipe recipe = (Recipe) ingredient;
 
-      Runnable bakeRecipeIngredients =
-          () -> {
-            for (Ingredient i : recipe.getIngredients()) {
-              bakeIngredient(i, cake);
-            }
-          };
+        Runnable bakeRecipeIngredients =
+            () -> {
+              List<Ingredient> ingredients = recipe.getIngredients();
+              for (int i = 0, end; i < ingredients.size(); i = end) {
+                if (ingredients.get(i) instanceof Recipe) {
+                  end = parallel ? Math.max(endOfContextRun(ingredients, i), i + 1) : i + 1;
+                  if (end - i > 1) {
+                    bakeConcurrently(ingredients.subList(i, end), cake);
+                  } else {
+                    bakeIngredient(ingredients.get(i), cake, parallel);
+                  }
+                } else {
+                  end = endOfTypeRun(ingredients, i);
+                  if (end - i > 1) {
+                    hooks
+                        .getHook(ingredients.get(i))
+                        .bakeBatch(Collections.unmodifiableList(ingredients.subList(i, end)), cake);
+                  } else {
+                    bakeIngredient(ingredients.get(i), cake, parallel);
+                  }
+                }
+              }
+            };
 
-      if (recipe.getContext() != null) {
-        cake.inNamespace(recipe.getContext(), bakeRecipeIngredients);
+        if (recipe.getContext() != null) {
+          cake.inNamespace(recipe.getContext(), bakeRecipeIngredients);
+        } else {
+          bakeRecipeIngredients.run();
+        }
       } else {
-        bakeRecipeIngredients.run();
+        hooks.getHook(ingredient).bake(ingredient, cake);
+      }
+    }
+
+    // Returns the end of the run of ingredients of the same type starting at start.
+    private int endOfTypeRun(List<Ingredient> ingredients, int start) {
+      int hookId = hooks.findHookId(ingredients.get(start));
+      int end = start + 1;
+      while (end < ingredients.size()
+          && !(ingredients.get(end) instanceof Recipe)
+          && hooks.findHookId(ingredients.get(end)) == hookId) {
+        end++;
+      }
+      return end;
+    }
+
+    // Returns the end of the run of sibling recipes with a context starting at start.
+    private static int endOfContextRun(List<Ingredient> ingredients, int start) {
+      int end = start;
+      while (end < ingredients.size() && isContextRecipe(ingredients.get(end))) {
+        end++;
+      }
+      return end;
+    }
+
+    private static boolean isContextRecipe(Ingredient ingredient) {
+      return ingredient instanceof Recipe && ((Recipe) ingredient).getContext() != null;
+    }
+
+    private void bakeConcurrently(List<Ingredient> recipes, Cake cake) {
+      Cake base = cake.fork();
+      List<Cake> forks = new ArrayList<>();
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      List<Runnable> serial = new ArrayList<>();
+      for (Ingredient recipe : recipes) {
+        Cake fork = cake.fork();
+        forks.add(fork);
+        Runnable bakeFork = () -> bakeIngredient(recipe, fork, false);
+        if (hooks.isThreadSafe(recipe)) {
+          futures.add(CompletableFuture.runAsync(bakeFork, parallelExecutor));
+        } else {
+          serial.add(bakeFork);
+        }
+      }
+
+      CompletableFuture<Void> all =
+          CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+      try {
+        serial.forEach(Runnable::run);
+      } catch (RuntimeException e) {
+        // let the concurrent recipes finish before failing
+        all.exceptionally(t -> null).join();
+        throw e;
+      }
+      try {
+        all.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+
+      Set<String> mergedKeys = new HashSet<>();
+      for (Cake fork : forks) {
+        for (String key : fork.getChangedKeys(base)) {
+          if (!mergedKeys.add(key)) {
+            throw new IllegalStateException(
+                "sibling recipes baked in parallel both published to key '" + key + "'");
+          }
+        }
+        cake.mergeChanges(fork, base);
       }
-    } else {
-      hooks.get(ingredient.getIngredientType()).bake(ingredient, cake);
     }
   }
 }
@@ -1,5 +1,7 @@
 package ca.derekcormier.recipe;
 
+import java.util.List;
+
 public abstract class BaseIngredientHook<T> {
   private final String ingredientName;
   private final Class<T> dataClass;
@@ -17,5 +19,26 @@ public abstract class BaseIngredientHook<T> {
     return dataClass;
   }
 
+  /**
+   * Whether this hook may bake several ingredients at once from different threads, when the oven
+   * bakes sibling recipes in parallel. Hooks that return false are only ever called from the thread
+   * that is baking the payload.
+   */
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   public abstract void bake(T ingredient, Cake cake);
+
+  /**
+   * Bakes a run of consecutive ingredients of this hook's type from the same recipe, and so the
+   * same namespace. Override to bake them together, for example with a single batch insert; by
+   * default, each ingredient is baked in order with {@link #bake}. Runs of a single ingredient are
+   * always baked with {@link #bake}.
+   */
+  public void bakeBatch(List<T> ingredients, Cake cake) {
+    for (T ingredient : ingredients) {
+      bake(ingredient, cake);
+    }
+  }
 }
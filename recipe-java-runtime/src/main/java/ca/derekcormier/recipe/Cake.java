@@ -5,22 +5,58 @@ import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 
 public class Cake {
   public static final String SEPARATOR = ".";
-  private final Map<String, Object> entries = new HashMap<>();
-  private final LinkedList<String> prefixStack = new LinkedList<>();
+  private static final Object MISSING = new Object();
 
-  public Cake() {}
+  /**
+   * How {@link #getPublishedKeyForValue} finds the key a value was published under. With an index,
+   * the lookup takes constant time instead of comparing the value against every entry.
+   */
+  public enum ValueIndex {
+    /**
+     * Compare against every entry with {@code equals}. Ingredients and recipes are compared by
+     * their properties; see {@link Ingredient#equals}.
+     */
+    NONE,
+    /** Index values by identity; only the published instance itself is found. */
+    IDENTITY,
+    /**
+     * Index values by {@code equals} and {@code hashCode}. Values must not change in a way that
+     * affects their hash code after they are published. Like {@link #NONE}, this finds ingredients
+     * and recipes equal to the one published.
+     */
+    EQUALITY
+  }
+
+  // may be shared with other cakes; see ConcurrentCake
+  private final CakeEntries entries;
+  private CakeKey namespace;
+
+  public Cake() {
+    this(ValueIndex.NONE);
+  }
+
+  public Cake(ValueIndex valueIndex) {
+    this(new CakeEntries(valueIndex), CakeKey.ROOT);
+  }
 
   public Cake(Cake other) {
-    this.entries.putAll(other.entries);
+    this(other.entries.copy(), CakeKey.ROOT);
+  }
+
+  Cake(CakeEntries entries, CakeKey namespace) {
+    this.entries = entries;
+    this.namespace = namespace;
   }
 
   public static String key(String... subKeys) {
@@ -31,7 +67,7 @@ public class Cake {
     return StringUtils.join(subKeys, Cake.SEPARATOR);
   }
 
-  private static void validateKey(String key) {
+  static void validateKey(String key) {
     if (StringUtils.isBlank(key)) {
       throw new IllegalArgumentException("keys cannot be empty");
     }
@@ -43,64 +79,29 @@ public class Cake {
 
   @SuppressWarnings("unchecked")
   public <T> T get(String... key) {
-    List<String> keys =
-        ((key == null) ? new ArrayList<String>() : Arrays.asList(key))
-            .stream()
-                .flatMap(
-                    k ->
-                        Arrays.stream(
-                            k == null ? new String[] {null} : StringUtils.split(k, Cake.SEPARATOR)))
-                .collect(Collectors.toList());
-
-    if (keys.isEmpty()) {
-      throw new IllegalArgumentException("cannot get value for empty key");
+    CakeKey path = toCakeKey(key);
+    Object value = lookup(path);
+    if (value != MISSING) {
+      return (T) value;
     }
 
-    keys.forEach(Cake::validateKey);
-    String fullKey = StringUtils.join(keys, Cake.SEPARATOR);
-
-    // search within current namespace
-    String searchKey = getPrefixWithSeparator(prefixStack) + fullKey;
-    if (entries.containsKey(searchKey)) {
-      return (T) entries.get(searchKey);
-    }
-
-    // search within each ancestor namespace up to the root
-    LinkedList<String> namespaces = new LinkedList<>(prefixStack);
-    while (!namespaces.isEmpty()) {
-      namespaces.removeLast();
-      searchKey = getPrefixWithSeparator(namespaces) + fullKey;
-      if (entries.containsKey(searchKey)) {
-        return (T) entries.get(searchKey);
-      }
-    }
-
-    // search within any other namespace (if unambiguous)
-    List<String> candidates =
-        entries.keySet().stream()
-            .filter(
-                k -> {
-                  String[] subkeys = StringUtils.split(k, SEPARATOR);
-                  if (keys.size() > subkeys.length) {
-                    return false;
-                  }
-                  for (int i = 0; i < keys.size(); i++) {
-                    if (!keys.get(keys.size() - 1 - i).equals(subkeys[subkeys.length - 1 - i])) {
-                      return false;
-                    }
-                  }
-                  return true;
-                })
-            .collect(Collectors.toList());
-
-    if (candidates.size() == 1) {
-      return (T) entries.get(candidates.get(0));
-    } else if (candidates.isEmpty()) {
+    String fullKey = path.toString();
+    List<String> candidates = entries.keysEndingWith(path);
+    if (candidates.isEmpty()) {
       throw new RuntimeException(
-          "cake does not contain key '" + fullKey + "; current keys: " + this.entries.keySet());
+          "cake does not contain key '"
+              + fullKey
+              + "; current keys: "
+              + entries.snapshot().asMap().keySet());
     } else {
+      Set<String> candidateSet = new HashSet<>(candidates);
       throw new RuntimeException(
-          "cannot retrieve ambiguous key '" + fullKey + "'; candidates: " + candidates);
+          "cannot retrieve ambiguous key '"
+              + fullKey
+              + "'; candidates: "
+              + entries.snapshot().asMap().keySet().stream()
+                  .filter(candidateSet::contains)
+                  .collect(Collectors.toList()));
     }
   }
 
@@ -109,29 +110,40 @@ public class Cake {
     return clazz.cast(get(key));
   }
 
+  /**
+   * Looks up a key the same way as {@link #get(String...)}, but returns an empty optional instead
+   * of throwing when the key is missing or ambiguous, or its value is null. Invalid keys still
+   * throw.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Optional<T> find(String... key) {
+    Object value = lookup(toCakeKey(key));
+    return value == MISSING ? Optional.empty() : Optional.ofNullable((T) value);
+  }
+
+  public <T> Optional<T> find(Class<T> clazz, String... key) {
+    return this.<Object>find(key).map(clazz::cast);
+  }
+
   public void publish(String key, Object value) {
-    getSubKeysAndValidateFullKey(key);
-    String newKey = getPrefixWithSeparator(prefixStack) + key;
-    entries.put(newKey, value);
+    CakeKey path = parseFullKey(key);
+    entries.put(namespace.resolve(path).toString(), value);
   }
 
   public void inNamespace(String key, Runnable runnable) {
-    List<String> keys = getSubKeysAndValidateFullKey(key);
-    keys.forEach(prefixStack::addLast);
+    CakeKey path = parseFullKey(key);
+    CakeKey previous = namespace;
+    namespace = namespace.resolve(path);
 
     try {
       runnable.run();
     } finally {
-      keys.forEach(k -> prefixStack.removeLast());
+      namespace = previous;
     }
   }
 
   public String getPublishedKeyForValue(Object value, boolean fullyQualified) {
-    List<String> matchingKeys =
-        entries.entrySet().stream()
-            .filter(e -> e.getValue().equals(value))
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toList());
+    List<String> matchingKeys = entries.keysForValue(value);
     if (matchingKeys.size() == 1) {
       if (fullyQualified) {
         return matchingKeys.get(0);
@@ -147,30 +159,42 @@ public class Cake {
 
   @JsonIgnore
   public String getNamespace() {
-    return StringUtils.join(prefixStack, Cake.SEPARATOR);
+    return namespace.toString();
   }
 
   public boolean hasContext() {
-    try {
-      getContext();
-      return true;
-    } catch (RuntimeException e) {
-      return false;
-    }
+    return !namespace.isRoot() && entries.snapshot().containsKey(namespace.toString());
+  }
+
+  /**
+   * Returns the value published under the current namespace's key, or an empty optional in the root
+   * namespace or if there is no such value.
+   */
+  @JsonIgnore
+  @SuppressWarnings("unchecked")
+  public <T> Optional<T> findContext() {
+    return namespace.isRoot()
+        ? Optional.empty()
+        : Optional.ofNullable((T) entries.snapshot().get(namespace.toString()));
+  }
+
+  @JsonIgnore
+  public <T> Optional<T> findContext(Class<T> clazz) {
+    return this.<Object>findContext().map(clazz::cast);
   }
 
   @JsonIgnore
   public <T> T getContext() {
-    if (this.prefixStack.isEmpty()) {
+    if (namespace.isRoot()) {
       throw new IllegalStateException("cannot get context in root namespace");
     } else {
-      String prefix = this.getPrefixWithSeparator(this.prefixStack);
-      prefix = prefix.substring(0, prefix.length() - 1);
+      String prefix = namespace.toString();
 
-      if (!entries.containsKey(prefix)) {
+      Object value = entries.snapshot().getOrDefault(prefix, MISSING);
+      if (value == MISSING) {
         throw new RuntimeException("cake does not contain context value for namespace " + prefix);
       }
-      return (T) entries.get(prefix);
+      return (T) value;
     }
   }
 
@@ -181,44 +205,134 @@ public class Cake {
   }
 
   @JsonIgnore
+  @SuppressWarnings("unchecked")
   public <T> T getOrGetContext(String... key) {
-    try {
-      return get(key);
-    } catch (RuntimeException e) {
-      return getContext();
-    }
+    Object value = lookupOrMissing(key);
+    return value != MISSING ? (T) value : getContext();
   }
 
   @JsonIgnore
   public <T> T getOrGetContext(Class<T> clazz, String... key) {
+    Object value = lookupOrMissing(key);
+    // a value of the wrong type falls back to the context too
+    return value != MISSING && (value == null || clazz.isInstance(value))
+        ? clazz.cast(value)
+        : clazz.cast(getContext());
+  }
+
+  private static CakeKey toCakeKey(String... key) {
+    CakeKey path = CakeKey.ROOT;
+    if (key != null) {
+      for (String k : key) {
+        path = path.resolve(CakeKey.parse(k));
+      }
+    }
+
+    if (path.isRoot()) {
+      throw new IllegalArgumentException("cannot get value for empty key");
+    }
+    return path;
+  }
+
+  // Returns the value for the key as get would, or MISSING where get would throw.
+  private Object lookup(CakeKey path) {
+    PersistentMap<String, Object> snapshot = entries.snapshot();
+    // search within current namespace, then each ancestor namespace up to the root
+    for (CakeKey ns = namespace; ns != null; ns = ns.getParent()) {
+      Object value = snapshot.getOrDefault(ns.resolve(path).toString(), MISSING);
+      if (value != MISSING) {
+        return value;
+      }
+    }
+
+    // search within any other namespace (if unambiguous)
+    List<String> candidates = entries.keysEndingWith(path);
+    return candidates.size() == 1 ? entries.snapshot().get(candidates.get(0)) : MISSING;
+  }
+
+  private Object lookupOrMissing(String... key) {
+    if (key == null || key.length == 0) {
+      return MISSING;
+    }
     try {
-      return clazz.cast(get(key));
-    } catch (RuntimeException e) {
-      return clazz.cast(getContext());
+      return lookup(toCakeKey(key));
+    } catch (IllegalArgumentException e) {
+      return MISSING;
     }
   }
 
-  private List<String> getSubKeysAndValidateFullKey(String fullKey) {
-    List<String> keys =
-        (null == fullKey)
-            ? new ArrayList<>()
-            : Arrays.asList(StringUtils.split(fullKey, Cake.SEPARATOR));
-    if (keys.isEmpty() || StringUtils.countMatches(fullKey, Cake.SEPARATOR) != keys.size() - 1) {
+  // Unlike lookups, keys that are published or entered must not contain empty sub-keys.
+  private static CakeKey parseFullKey(String fullKey) {
+    if (StringUtils.isEmpty(fullKey)
+        || fullKey.startsWith(Cake.SEPARATOR)
+        || fullKey.endsWith(Cake.SEPARATOR)
+        || fullKey.contains(Cake.SEPARATOR + Cake.SEPARATOR)) {
       throw new IllegalArgumentException("cannot publish value for empty key");
     }
+    return CakeKey.parse(fullKey);
+  }
 
-    keys.forEach(Cake::validateKey);
+  void putEntries(Cake other) {
+    entries.putAll(other.entries.snapshot());
+  }
+
+  // Copies the entries that other added or changed relative to base, overwriting existing values.
+  void mergeChanges(Cake other, Cake base) {
+    PersistentMap<String, Object> otherEntries = other.entries.snapshot();
+    for (String key : other.getChangedKeys(base)) {
+      entries.put(key, otherEntries.get(key));
+    }
+  }
+
+  // From now on, remembers each key that is published or merged into this cake, even when its value
+  // stays the same, so that a hook that changed a value in place and published it again is seen.
+  void trackChanges() {
+    entries.trackChanges();
+  }
+
+  // Copies the entries that were published or merged into other since it started tracking changes.
+  void putTrackedChanges(Cake other) {
+    PersistentMap<String, Object> otherEntries = other.entries.snapshot();
+    for (String key : other.entries.getChangedKeys()) {
+      entries.put(key, otherEntries.get(key));
+    }
+  }
+
+  // Returns the keys that this cake added or changed relative to base.
+  List<String> getChangedKeys(Cake base) {
+    PersistentMap<String, Object> baseEntries = base.entries.snapshot();
+    List<String> keys = new ArrayList<>();
+    entries
+        .snapshot()
+        .forEach(
+            (key, value) -> {
+              if (!baseEntries.containsKey(key) || !Objects.equals(baseEntries.get(key), value)) {
+                keys.add(key);
+              }
+            });
     return keys;
   }
 
-  private String getPrefixWithSeparator(List<String> namespaces) {
-    return StringUtils.join(namespaces, Cake.SEPARATOR)
-        + (namespaces.size() > 0 ? Cake.SEPARATOR : "");
+  /**
+   * Returns a copy of this cake in the same namespace, sharing its entries until either one
+   * changes. Backend ovens bake sibling recipes concurrently against forks, so subclasses override
+   * this to fork into a cake of their own kind.
+   */
+  protected Cake fork() {
+    return new Cake(entries.copy(), namespace);
+  }
+
+  CakeKey getNamespaceKey() {
+    return namespace;
+  }
+
+  CakeEntries getCakeEntries() {
+    return entries;
   }
 
   @JsonAnyGetter
   protected Map<String, Object> getEntries() {
-    return entries;
+    return entries.snapshot().asMap();
   }
 
   @JsonAnySetter
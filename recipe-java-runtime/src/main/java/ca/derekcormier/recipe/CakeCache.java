@@ -0,0 +1,107 @@
+package ca.derekcormier.recipe;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Cakes baked from idempotent recipes, kept so that an oven can hand out a copy instead of baking
+ * an equal recipe again. Cakes are keyed by the recipes themselves, which can't be changed once
+ * they're prepared, and whose equality covers the domain of each ingredient. The cache holds at
+ * most a given number of cakes, evicting the least recently used first, and drops each cake once
+ * it's older than its time to live.
+ *
+ * <p>The cache keeps a copy of each cake and hands out copies of it. Copies share the values in the
+ * cake with the cake that was baked, so a test that changes an object it got from a cached cake
+ * changes it for every test after it.
+ */
+public class CakeCache {
+  private final int maxSize;
+  private final long timeToLiveNanos;
+  private final LongSupplier nanoTime;
+  // in order of last use, least recent first
+  private final LinkedHashMap<Recipe, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public CakeCache(int maxSize, Duration timeToLive) {
+    this(maxSize, timeToLive, System::nanoTime);
+  }
+
+  CakeCache(int maxSize, Duration timeToLive, LongSupplier nanoTime) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("cake cache size must be positive");
+    }
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException("cake cache time to live must be positive");
+    }
+    this.maxSize = maxSize;
+    this.timeToLiveNanos = timeToLive.toNanos();
+    this.nanoTime = Objects.requireNonNull(nanoTime);
+  }
+
+  /** Returns the number of lookups that found a cake. */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of lookups that found no cake, or only one that had expired. */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /** Returns the number of cakes dropped to make room for others or because they expired. */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /** Returns a copy of the cake cached for a recipe equal to the given one, or null if none is. */
+  synchronized Cake get(Recipe recipe) {
+    Entry entry = entries.get(recipe);
+    if (entry != null && nanoTime.getAsLong() - entry.bakedAt >= timeToLiveNanos) {
+      entries.remove(recipe);
+      evictions++;
+      entry = null;
+    }
+
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return new Cake(entry.cake);
+  }
+
+  synchronized void put(Recipe recipe, Cake cake) {
+    entries.put(recipe, new Entry(new Cake(cake), nanoTime.getAsLong()));
+    Iterator<Map.Entry<Recipe, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+    while (entries.size() > maxSize) {
+      leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      evictions++;
+    }
+  }
+
+  private static final class Entry {
+    private final Cake cake;
+    private final long bakedAt;
+
+    Entry(Cake cake, long bakedAt) {
+      this.cake = cake;
+      this.bakedAt = bakedAt;
+    }
+  }
+}
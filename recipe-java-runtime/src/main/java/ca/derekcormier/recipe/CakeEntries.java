@@ -0,0 +1,158 @@
+package ca.derekcormier.recipe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/** The entries of a cake, along with the indexes built over them. */
+class CakeEntries {
+  private final Cake.ValueIndex valueIndex;
+  // persistent, so that copies share their entries until either one changes; volatile, so that
+  // synchronized entries can take a snapshot without locking
+  private volatile PersistentMap<String, Object> map;
+  // built on the first lookup that needs it, then kept up to date as entries are added
+  private SuffixIndex suffixIndex;
+  // like the suffix index, built on first use
+  private ReverseValueIndex reverseValueIndex;
+  // the keys put since changes started being tracked, or null if they aren't
+  private Set<String> changedKeys;
+
+  CakeEntries(Cake.ValueIndex valueIndex) {
+    this(valueIndex, PersistentMap.empty());
+  }
+
+  private CakeEntries(Cake.ValueIndex valueIndex, PersistentMap<String, Object> map) {
+    this.valueIndex = valueIndex;
+    this.map = map;
+  }
+
+  Cake.ValueIndex getValueIndex() {
+    return valueIndex;
+  }
+
+  /** Returns the current entries; later changes are not reflected in the returned map. */
+  PersistentMap<String, Object> snapshot() {
+    return map;
+  }
+
+  void setSnapshot(PersistentMap<String, Object> map) {
+    this.map = map;
+  }
+
+  /** Returns unsynchronized entries sharing the current ones. */
+  CakeEntries copy() {
+    return new CakeEntries(valueIndex, snapshot());
+  }
+
+  /** Starts remembering the keys that are put from now on, whether their values change or not. */
+  void trackChanges() {
+    changedKeys = new HashSet<>();
+  }
+
+  /** Returns the keys put since changes started being tracked. */
+  List<String> getChangedKeys() {
+    return new ArrayList<>(changedKeys);
+  }
+
+  void put(String key, Object value) {
+    if (changedKeys != null) {
+      changedKeys.add(key);
+    }
+    PersistentMap<String, Object> current = snapshot();
+    if (suffixIndex != null && !current.containsKey(key)) {
+      suffixIndex.add(key);
+    }
+    Object previousValue = current.get(key);
+    setSnapshot(current.put(key, value));
+    if (reverseValueIndex != null) {
+      reverseValueIndex.put(key, value, previousValue);
+    }
+  }
+
+  void putAll(PersistentMap<String, Object> entries) {
+    if (snapshot().isEmpty()
+        && suffixIndex == null
+        && reverseValueIndex == null
+        && changedKeys == null) {
+      setSnapshot(entries);
+    } else {
+      entries.forEach(this::put);
+    }
+  }
+
+  List<String> keysEndingWith(CakeKey key) {
+    if (suffixIndex == null) {
+      suffixIndex = new SuffixIndex();
+      snapshot().forEach((k, value) -> suffixIndex.add(k));
+    }
+    return suffixIndex.keysEndingWith(key);
+  }
+
+  List<String> keysForValue(Object value) {
+    if (valueIndex == Cake.ValueIndex.NONE) {
+      return snapshot().asMap().entrySet().stream()
+          .filter(e -> e.getValue().equals(value))
+          .map(Map.Entry::getKey)
+          .collect(Collectors.toList());
+    }
+
+    if (reverseValueIndex == null) {
+      reverseValueIndex = new ReverseValueIndex(valueIndex);
+      snapshot().forEach((key, v) -> reverseValueIndex.put(key, v, null));
+    }
+    return reverseValueIndex.keysForValue(value, snapshot());
+  }
+
+  /**
+   * Entries that can be shared between threads. Reads of the entries themselves take a snapshot
+   * without locking; changes and index lookups are serialized.
+   */
+  static final class Synchronized extends CakeEntries {
+    Synchronized(Cake.ValueIndex valueIndex) {
+      super(valueIndex);
+    }
+
+    private Synchronized(Cake.ValueIndex valueIndex, PersistentMap<String, Object> map) {
+      super(valueIndex, map);
+    }
+
+    /** Returns synchronized entries sharing the current ones. */
+    @Override
+    CakeEntries copy() {
+      return new Synchronized(getValueIndex(), snapshot());
+    }
+
+    @Override
+    synchronized void trackChanges() {
+      super.trackChanges();
+    }
+
+    @Override
+    synchronized List<String> getChangedKeys() {
+      return super.getChangedKeys();
+    }
+
+    @Override
+    synchronized void put(String key, Object value) {
+      super.put(key, value);
+    }
+
+    @Override
+    synchronized void putAll(PersistentMap<String, Object> entries) {
+      super.putAll(entries);
+    }
+
+    @Override
+    synchronized List<String> keysEndingWith(CakeKey key) {
+      return super.keysEndingWith(key);
+    }
+
+    @Override
+    synchronized List<String> keysForValue(Object value) {
+      return super.keysForValue(value);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package ca.derekcormier.recipe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A validated path of cake sub-keys, such as a namespace or a key relative to one.
+ *
+ * <p>Keys are interned: parsing the same string, or extending a key with the same sub-key, returns
+ * the same instance, with its joined form computed once. Interned keys form a tree through their
+ * parents, so qualifying a key with a namespace and walking up through the ancestor namespaces are
+ * map lookups rather than string joins. At most {@link #MAX_INTERNED} keys are ever interned; after
+ * that, further keys are created when needed instead, so that unbounded key sets can't exhaust
+ * memory. Keys that aren't interned still equal the interned ones, they're only slower to use.
+ */
+final class CakeKey {
+  static final CakeKey ROOT = new CakeKey(null, null, "");
+  static final int MAX_INTERNED = 1 << 16;
+
+  private static final Map<String, CakeKey> parsed = new ConcurrentHashMap<>();
+  private static final AtomicInteger interned = new AtomicInteger();
+
+  private final CakeKey parent;
+  private final String subKey;
+  private final String key;
+  private volatile Map<String, CakeKey> children;
+
+  private CakeKey(CakeKey parent, String subKey, String key) {
+    this.parent = parent;
+    this.subKey = subKey;
+    this.key = key;
+  }
+
+  /**
+   * Parses a key whose sub-keys are separated by {@link Cake#SEPARATOR}, ignoring empty sub-keys.
+   * Throws if a sub-key is blank.
+   */
+  static CakeKey parse(String key) {
+    if (key == null) {
+      throw new IllegalArgumentException("keys cannot be empty");
+    }
+
+    CakeKey cakeKey = parsed.get(key);
+    if (cakeKey != null) {
+      return cakeKey;
+    }
+
+    cakeKey = ROOT;
+    for (String subKey : StringUtils.split(key, Cake.SEPARATOR)) {
+      Cake.validateKey(subKey);
+      cakeKey = cakeKey.child(subKey);
+    }
+    if (reserve() && parsed.putIfAbsent(key, cakeKey) != null) {
+      interned.decrementAndGet();
+    }
+    return cakeKey;
+  }
+
+  /** Returns this key extended by a single, already validated, sub-key. */
+  CakeKey child(String subKey) {
+    Map<String, CakeKey> children = getChildren();
+    CakeKey child = children.get(subKey);
+    if (child != null) {
+      return child;
+    }
+
+    child = new CakeKey(this, subKey, isRoot() ? subKey : key + Cake.SEPARATOR + subKey);
+    if (reserve()) {
+      CakeKey existing = children.putIfAbsent(subKey, child);
+      if (existing != null) {
+        interned.decrementAndGet();
+        return existing;
+      }
+    }
+    return child;
+  }
+
+  /** Returns the given key qualified by this one. */
+  CakeKey resolve(CakeKey relative) {
+    if (relative.isRoot()) {
+      return this;
+    }
+    return resolve(relative.parent).child(relative.subKey);
+  }
+
+  /** Returns the key with the last sub-key removed, or null for the root. */
+  CakeKey getParent() {
+    return parent;
+  }
+
+  String getLastSubKey() {
+    return subKey;
+  }
+
+  boolean isRoot() {
+    return parent == null;
+  }
+
+  static int getInternedCount() {
+    return interned.get();
+  }
+
+  // Counts a key about to be interned, or returns false if as many keys as allowed already are.
+  // Whoever reserves a key and then finds it was interned concurrently gives the reservation back.
+  private static boolean reserve() {
+    if (interned.incrementAndGet() > MAX_INTERNED) {
+      interned.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  private Map<String, CakeKey> getChildren() {
+    Map<String, CakeKey> children = this.children;
+    if (children == null) {
+      synchronized (this) {
+        children = this.children;
+        if (children == null) {
+          children = new ConcurrentHashMap<>(4);
+          this.children = children;
+        }
+      }
+    }
+    return children;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof CakeKey && key.equals(((CakeKey) o).key));
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
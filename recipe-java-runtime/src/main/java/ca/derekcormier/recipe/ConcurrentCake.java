@@ -0,0 +1,34 @@
+package ca.derekcormier.recipe;
+
+/**
+ * A cake that can be published to and read from by several threads at once.
+ *
+ * <p>Entries are shared, but the current namespace is not: each thread or task should work on its
+ * own {@link #view()}, so that entering a namespace in one task doesn't affect keys published by
+ * another. Lookups behave the same as on a regular {@link Cake}, against the entries published at
+ * the time of the lookup.
+ */
+public class ConcurrentCake extends Cake {
+  public ConcurrentCake() {
+    this(ValueIndex.NONE);
+  }
+
+  public ConcurrentCake(ValueIndex valueIndex) {
+    super(new CakeEntries.Synchronized(valueIndex), CakeKey.ROOT);
+  }
+
+  private ConcurrentCake(CakeEntries entries, CakeKey namespace) {
+    super(entries, namespace);
+  }
+
+  /** Returns a concurrent copy of this cake, so that hooks in forked recipes can share it too. */
+  @Override
+  protected ConcurrentCake fork() {
+    return new ConcurrentCake(getCakeEntries().copy(), getNamespaceKey());
+  }
+
+  /** Returns a cake that shares this cake's entries, starting in its current namespace. */
+  public ConcurrentCake view() {
+    return new ConcurrentCake(getCakeEntries(), getNamespaceKey());
+  }
+}
@@ -13,8 +13,30 @@ public class DirectDispatchOven extends Oven {
         "cannot overwrite default dispatcher in DirectDispatchOven");
   }
 
+  @Override
+  public void setDefaultAsyncDispatcher(AsyncDispatcher dispatcher) {
+    throw new UnsupportedOperationException(
+        "cannot overwrite default dispatcher in DirectDispatchOven");
+  }
+
+  @Override
+  public void setDefaultStreamDispatcher(StreamDispatcher dispatcher) {
+    throw new UnsupportedOperationException(
+        "cannot overwrite default dispatcher in DirectDispatchOven");
+  }
+
   @Override
   public void addDispatcher(String domain, Dispatcher dispatcher) {
     throw new UnsupportedOperationException("cannot add dispatchers to a DirectDispatchOven");
   }
+
+  @Override
+  public void addAsyncDispatcher(String domain, AsyncDispatcher dispatcher) {
+    throw new UnsupportedOperationException("cannot add dispatchers to a DirectDispatchOven");
+  }
+
+  @Override
+  public void addStreamDispatcher(String domain, StreamDispatcher dispatcher) {
+    throw new UnsupportedOperationException("cannot add dispatchers to a DirectDispatchOven");
+  }
 }
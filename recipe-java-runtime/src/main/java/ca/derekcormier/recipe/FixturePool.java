@@ -0,0 +1,135 @@
+package ca.derekcormier.recipe;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a number of fresh cakes of the same recipe baked ahead of time, so that tests which need a
+ * fixture of their own don't wait on baking it. Each cake comes from a bake of its own, unlike the
+ * copies a {@link CakeCache} hands out, so tests are free to change the data behind it. The pool
+ * bakes past the oven's cake cache, if it has one, and doesn't add its cakes to it.
+ *
+ * <p>The pool starts baking as soon as it's created, and starts another bake each time a cake is
+ * taken. Bakes start on the pool's executor, so that the oven's dispatchers don't run on the thread
+ * taking the cake even when they're synchronous.
+ */
+public class FixturePool implements AutoCloseable {
+  private final Oven oven;
+  private final Supplier<Recipe> recipes;
+  private final int depth;
+  private final Executor executor;
+  // oldest first, whether baked yet or not
+  private final Queue<CompletableFuture<Cake>> cakes = new ArrayDeque<>();
+  private boolean closed = false;
+
+  private long hits;
+  private long misses;
+  private long refills;
+  private long refillNanos;
+
+  public FixturePool(Oven oven, Recipe recipe, int depth) {
+    this(oven, () -> recipe, depth);
+  }
+
+  /**
+   * Creates a pool that prepares each recipe it bakes with the given supplier, for fixtures that
+   * need values of their own, such as unique names.
+   */
+  public FixturePool(Oven oven, Supplier<Recipe> recipes, int depth) {
+    this(oven, recipes, depth, ForkJoinPool.commonPool());
+  }
+
+  public FixturePool(Oven oven, Supplier<Recipe> recipes, int depth, Executor executor) {
+    if (depth <= 0) {
+      throw new IllegalArgumentException("fixture pool depth must be positive");
+    }
+    this.oven = Objects.requireNonNull(oven);
+    this.recipes = Objects.requireNonNull(recipes);
+    this.depth = depth;
+    this.executor = Objects.requireNonNull(executor);
+    synchronized (this) {
+      refill();
+    }
+  }
+
+  /**
+   * Takes the oldest cake in the pool and starts baking another in its place. If the oldest cake
+   * isn't baked yet, this waits for it, which counts as a miss. Bakes that failed are discarded and
+   * baked again, and if that bake fails too, its failure is thrown.
+   */
+  public Cake take() {
+    CompletableFuture<Cake> cake;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("fixture pool is closed");
+      }
+      cakes.removeIf(CompletableFuture::isCompletedExceptionally);
+      refill();
+      cake = cakes.remove();
+      if (cake.isDone() && !cake.isCompletedExceptionally()) {
+        hits++;
+      } else {
+        misses++;
+      }
+      refill();
+    }
+
+    try {
+      return cake.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException("could not bake fixture", e.getCause());
+    }
+  }
+
+  /** Returns the fraction of cakes that were baked by the time they were taken. */
+  public synchronized double getHitRate() {
+    return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /** Returns the average time the pool's bakes have taken, from being started to being baked. */
+  public synchronized Duration getAverageRefillTime() {
+    return refills == 0 ? Duration.ZERO : Duration.ofNanos(refillNanos / refills);
+  }
+
+  /**
+   * Stops the pool from baking more cakes. Bakes already started still finish, but their cakes are
+   * discarded.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    cakes.clear();
+  }
+
+  private void refill() {
+    while (cakes.size() < depth) {
+      long start = System.nanoTime();
+      cakes.add(
+          CompletableFuture.supplyAsync(recipes, executor)
+              .thenCompose(oven::bakeUncached)
+              .whenComplete((cake, e) -> recordRefill(System.nanoTime() - start)));
+    }
+  }
+
+  private synchronized void recordRefill(long nanos) {
+    refills++;
+    refillNanos += nanos;
+  }
+}
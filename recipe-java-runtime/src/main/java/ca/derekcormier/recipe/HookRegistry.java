@@ -0,0 +1,164 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.impl.StdSubtypeResolver;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable set of hooks registered with a backend oven, along with the object mapper that
+ * deserializes their ingredients. Registering a hook produces a new registry, so a registry can be
+ * shared between threads without locking.
+ */
+final class HookRegistry {
+  static final HookRegistry EMPTY =
+      new HookRegistry(new BaseIngredientHook[0], Collections.emptyMap());
+
+  // indexed by hook id, which deserialized ingredients carry
+  private final BaseIngredientHook[] hooks;
+  private final Map<String, Integer> hookIds;
+  private final ObjectMapper objectMapper;
+  private final ObjectReader payloadReader;
+  private final ObjectReader payloadListReader;
+  private final ObjectWriter writer;
+
+  private HookRegistry(BaseIngredientHook[] hooks, Map<String, Integer> hookIds) {
+    this.hooks = hooks;
+    this.hookIds = hookIds;
+
+    Map<Class<?>, Integer> dataClassHookIds = new HashMap<>();
+    StdSubtypeResolver subtypeResolver = new StdSubtypeResolver();
+    subtypeResolver.registerSubtypes(new NamedType(Recipe.class, "Recipe"));
+    for (int hookId = 0; hookId < hooks.length; hookId++) {
+      BaseIngredientHook hook = hooks[hookId];
+      dataClassHookIds.put(hook.getDataClass(), hookId);
+      subtypeResolver.registerSubtypes(
+          new NamedType(hook.getDataClass(), hook.getIngredientName()));
+    }
+
+    objectMapper = new ObjectMapper();
+    objectMapper.setSubtypeResolver(subtypeResolver);
+    objectMapper.registerModule(
+        new SimpleModule().setDeserializerModifier(new HookIdAssigner(dataClassHookIds)));
+    payloadReader = objectMapper.readerFor(Payload.class);
+    payloadListReader = objectMapper.readerFor(new TypeReference<List<Payload>>() {});
+    writer = objectMapper.writer();
+  }
+
+  HookRegistry withHook(BaseIngredientHook hook) {
+    Map<String, Integer> newHookIds = new HashMap<>(hookIds);
+    int hookId = newHookIds.computeIfAbsent(hook.getIngredientName(), name -> hookIds.size());
+    BaseIngredientHook[] newHooks = Arrays.copyOf(hooks, Math.max(hooks.length, hookId + 1));
+    newHooks[hookId] = hook;
+    return new HookRegistry(newHooks, Collections.unmodifiableMap(newHookIds));
+  }
+
+  JsonFactory getFactory() {
+    return objectMapper.getFactory();
+  }
+
+  ObjectReader getPayloadReader() {
+    return payloadReader;
+  }
+
+  ObjectReader getPayloadListReader() {
+    return payloadListReader;
+  }
+
+  ObjectWriter getWriter() {
+    return writer;
+  }
+
+  // Returns the id of the ingredient's hook, or -1 if none is registered.
+  int findHookId(Ingredient ingredient) {
+    int hookId = ingredient.getHookId();
+    if (hookId >= 0) {
+      return hookId;
+    }
+    // the ingredient wasn't deserialized by this registry, so fall back to its name
+    return hookIds.getOrDefault(ingredient.getIngredientType(), -1);
+  }
+
+  BaseIngredientHook getHook(Ingredient ingredient) {
+    int hookId = findHookId(ingredient);
+    if (hookId < 0) {
+      throw new IllegalStateException(
+          "no hook registered for ingredient type '" + ingredient.getIngredientType() + "'");
+    }
+    return hooks[hookId];
+  }
+
+  boolean isThreadSafe(Ingredient ingredient) {
+    if (ingredient instanceof Recipe) {
+      return ((Recipe) ingredient).getIngredients().stream().allMatch(this::isThreadSafe);
+    }
+    int hookId = findHookId(ingredient);
+    return hookId >= 0 && hooks[hookId].isThreadSafe();
+  }
+
+  // Tags deserialized ingredients with the id of their hook, so that baking them doesn't need to
+  // look the hook up by name, and streams data that reads its own properties.
+  private static class HookIdAssigner extends BeanDeserializerModifier {
+    private final Map<Class<?>, Integer> dataClassHookIds;
+
+    HookIdAssigner(Map<Class<?>, Integer> dataClassHookIds) {
+      this.dataClassHookIds = dataClassHookIds;
+    }
+
+    @Override
+    public JsonDeserializer<?> modifyDeserializer(
+        DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+      Class<?> beanClass = beanDesc.getBeanClass();
+      Integer hookId = dataClassHookIds.get(beanClass);
+      if (hookId == null) {
+        return deserializer;
+      }
+      if (IngredientDataDeserializer.readsOwnProperties(beanClass)) {
+        try {
+          return new IngredientDataDeserializer(beanClass.asSubclass(Ingredient.class), hookId);
+        } catch (NoSuchMethodException e) {
+          // without a public no-arg constructor, leave it to jackson
+        }
+      }
+      return new HookIdDeserializer(deserializer, hookId);
+    }
+  }
+
+  private static class HookIdDeserializer extends DelegatingDeserializer {
+    private final int hookId;
+
+    HookIdDeserializer(JsonDeserializer<?> delegatee, int hookId) {
+      super(delegatee);
+      this.hookId = hookId;
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new HookIdDeserializer(newDelegatee, hookId);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      Object ingredient = super.deserialize(p, ctxt);
+      ((Ingredient) ingredient).setHookId(hookId);
+      return ingredient;
+    }
+  }
+}
@@ -4,18 +4,24 @@ import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import java.io.IOException;
 import java.lang.reflect.Array;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.WRAPPER_OBJECT)
 public abstract class Ingredient {
-  private final Map<String, Object> properties = new HashMap<>();
+  // persistent, so that copies made by with* methods share it instead of copying every property
+  private PersistentMap<String, Object> properties = PersistentMap.empty();
 
   @JsonIgnore private final String ingredientType;
   @JsonIgnore private final String domain;
+  // index of this ingredient's hook in the backend oven that deserialized it, if any
+  @JsonIgnore private int hookId = -1;
 
   public Ingredient(String ingredientType, String domain) {
     this.ingredientType = ingredientType;
@@ -28,12 +34,7 @@ public abstract class Ingredient {
 
   protected Ingredient(Ingredient other) {
     this(other.getIngredientType(), other.getDomain());
-    other
-        .getProperties()
-        .forEach(
-            (key, value) -> {
-              this.setProperty(key, value);
-            });
+    this.properties = other.properties;
   }
 
   public String getDomain() {
@@ -44,6 +45,14 @@ public abstract class Ingredient {
     return ingredientType;
   }
 
+  int getHookId() {
+    return hookId;
+  }
+
+  void setHookId(int hookId) {
+    this.hookId = hookId;
+  }
+
   protected void setRequired(String name, Object value) {
     setProperty(name, value);
   }
@@ -52,9 +61,7 @@ public abstract class Ingredient {
     if (!repeatable) {
       setProperty(name, value);
     } else {
-      List values = (List) getProperties().getOrDefault(name, new ArrayList());
-      values.add(value);
-      setProperty(name, values);
+      setProperty(name, getRepeatable(name).append(value));
     }
   }
 
@@ -71,25 +78,178 @@ public abstract class Ingredient {
     }
 
     if (!repeatable) {
-      Map map = (Map) getProperties().getOrDefault(name, new HashMap());
+      // copied rather than updated in place, since earlier copies of this ingredient share it
+      Map map = new HashMap((Map) properties.getOrDefault(name, Collections.emptyMap()));
       for (int i = 0; i < keyValuePairs.length; i += 2) {
         map.put(keyValuePairs[i], keyValuePairs[i + 1]);
       }
       setProperty(name, map);
     } else {
-      List<Map> list = (List) getProperties().getOrDefault(name, new ArrayList<>());
       Map map = new HashMap();
       for (int i = 0; i < keyValuePairs.length; i += 2) {
         map.put(keyValuePairs[i], keyValuePairs[i + 1]);
       }
-      list.add(map);
-      setProperty(name, list);
+      setProperty(name, getRepeatable(name).append(map));
+    }
+  }
+
+  private PersistentList<Object> getRepeatable(String name) {
+    Object values = properties.get(name);
+    if (values instanceof PersistentList) {
+      return (PersistentList<Object>) values;
+    }
+
+    // set some other way, such as by deserialization
+    PersistentList<Object> list = PersistentList.empty();
+    if (values instanceof List) {
+      for (Object value : (List<?>) values) {
+        list = list.append(value);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Reads the named property from a payload, returning false if it isn't one that this ingredient
+   * reads itself. Generated ingredient data overrides this so that backend ovens can read each
+   * property straight into a typed field; other properties are stored with {@link #setProperty}.
+   */
+  protected boolean readProperty(String name, PropertyReader reader) throws IOException {
+    return false;
+  }
+
+  /**
+   * Writes this ingredient's properties to a payload. Generated ingredients override this to write
+   * their typed fields directly, which spares serialization from going through the property map.
+   */
+  protected void writeProperties(PropertyWriter writer) throws IOException {
+    for (Map.Entry<String, Object> property : properties.asMap().entrySet()) {
+      writer.write(property.getKey(), property.getValue());
+    }
+  }
+
+  /**
+   * Returns the cake keys this ingredient's hook reads, or null if it hasn't declared them, in
+   * which case the hook may read any key. Generated ingredients return the keys their cookbook
+   * declares.
+   */
+  @JsonIgnore
+  protected List<String> getReadKeys() {
+    return null;
+  }
+
+  /**
+   * Returns the cake keys this ingredient's hook publishes, or null if it hasn't declared them, in
+   * which case the hook may publish any key.
+   */
+  @JsonIgnore
+  protected List<String> getPublishedKeys() {
+    return null;
+  }
+
+  /**
+   * Returns whether baking this ingredient again leaves the backend as baking it once did and
+   * publishes the same cake, so that a cake baked from it can be reused. Generated ingredients
+   * return true when their cookbook declares them idempotent.
+   */
+  @JsonIgnore
+  protected boolean isIdempotent() {
+    return false;
+  }
+
+  /**
+   * Ingredients are equal when they are of the same class, ingredient type and domain, and have
+   * equal properties, so that the same recipe can be recognized wherever it's prepared.
+   *
+   * <p>This also applies to ingredients published to a cake: {@link Cake#getPublishedKeyForValue}
+   * and {@link Cake.ValueIndex#EQUALITY} treat two ingredients with the same properties as the same
+   * value, so looking up the key of one fails when an equal one was published under another key.
+   * Use {@link Cake.ValueIndex#IDENTITY} to look up the published instance itself.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o == null || o.getClass() != getClass()) {
+      return false;
+    }
+    Ingredient other = (Ingredient) o;
+    return ingredientType.equals(other.ingredientType)
+        && Objects.equals(domain, other.domain)
+        && propertiesEqual(other);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * ingredientType.hashCode() + Objects.hashCode(domain)) + propertiesHashCode();
+  }
+
+  /**
+   * Returns whether this ingredient's properties equal those of another ingredient of the same
+   * class. Generated ingredients override this and {@link #propertiesHashCode} to compare their
+   * typed fields as well.
+   */
+  protected boolean propertiesEqual(Ingredient other) {
+    return valuesEqual(properties.asMap(), other.properties.asMap());
+  }
+
+  protected int propertiesHashCode() {
+    return valueHashCode(properties.asMap());
+  }
+
+  // Compares property values by content, looking into the arrays, lists and maps that optionals
+  // are stored in.
+  private static boolean valuesEqual(Object a, Object b) {
+    if (a instanceof List && b instanceof List) {
+      List<?> listA = (List<?>) a;
+      List<?> listB = (List<?>) b;
+      if (listA.size() != listB.size()) {
+        return false;
+      }
+      for (int i = 0; i < listA.size(); i++) {
+        if (!valuesEqual(listA.get(i), listB.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    } else if (a instanceof Map && b instanceof Map) {
+      Map<?, ?> mapA = (Map<?, ?>) a;
+      Map<?, ?> mapB = (Map<?, ?>) b;
+      if (mapA.size() != mapB.size()) {
+        return false;
+      }
+      for (Map.Entry<?, ?> entry : mapA.entrySet()) {
+        if (!mapB.containsKey(entry.getKey())
+            || !valuesEqual(entry.getValue(), mapB.get(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return Objects.deepEquals(a, b);
+  }
+
+  private static int valueHashCode(Object value) {
+    if (value instanceof List) {
+      int hash = 1;
+      for (Object element : (List<?>) value) {
+        hash = 31 * hash + valueHashCode(element);
+      }
+      return hash;
+    } else if (value instanceof Map) {
+      int hash = 0;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        hash += Objects.hashCode(entry.getKey()) ^ valueHashCode(entry.getValue());
+      }
+      return hash;
     }
+    return Arrays.deepHashCode(new Object[] {value});
   }
 
   @JsonAnySetter
   protected void setProperty(String key, Object value) {
-    properties.put(key, value);
+    properties = properties.put(key, value);
   }
 
   protected <T> T getProperty(String key) {
@@ -122,6 +282,6 @@ public abstract class Ingredient {
 
   @JsonAnyGetter
   protected Map<String, Object> getProperties() {
-    return properties;
+    return properties.asMap();
   }
 }
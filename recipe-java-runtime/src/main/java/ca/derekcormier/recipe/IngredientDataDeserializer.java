@@ -0,0 +1,69 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+
+/**
+ * Deserializes ingredient data that reads its own properties, streaming each property straight into
+ * the data's typed fields instead of going through jackson's bean deserializer. Properties the data
+ * doesn't read are stored as untyped values, as with {@link Ingredient#setProperty}.
+ */
+final class IngredientDataDeserializer extends StdDeserializer<Ingredient> {
+  private final Constructor<? extends Ingredient> constructor;
+  private final int hookId;
+
+  IngredientDataDeserializer(Class<? extends Ingredient> dataClass, int hookId)
+      throws NoSuchMethodException {
+    super(dataClass);
+    this.constructor = dataClass.getConstructor();
+    this.hookId = hookId;
+  }
+
+  /** Returns whether the data class, rather than the runtime, overrides readProperty. */
+  static boolean readsOwnProperties(Class<?> dataClass) {
+    for (Class<?> c = dataClass;
+        c != null && c != Ingredient.class && c != KeyedIngredient.class;
+        c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod("readProperty", String.class, PropertyReader.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // keep looking in the superclass
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Ingredient deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    Ingredient ingredient;
+    try {
+      ingredient = constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      return (Ingredient) ctxt.handleInstantiationProblem(handledType(), null, e);
+    }
+
+    PropertyReader reader = new PropertyReader(p, ctxt);
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = p.nextToken();
+    }
+    for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String name = p.getCurrentName();
+      p.nextToken();
+      if (!ingredient.readProperty(name, reader)) {
+        ingredient.setProperty(name, reader.read(Object.class));
+      }
+    }
+    if (token != JsonToken.END_OBJECT) {
+      ctxt.reportWrongTokenException(this, JsonToken.END_OBJECT, "expected end of ingredient");
+    }
+
+    ingredient.setHookId(hookId);
+    return ingredient;
+  }
+}
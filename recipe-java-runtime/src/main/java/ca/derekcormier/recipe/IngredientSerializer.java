@@ -0,0 +1,52 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Serializes ingredients that write their own properties, calling straight into the ingredient
+ * instead of going through jackson's bean serializer and the ingredient's property map.
+ */
+final class IngredientSerializer extends StdSerializer<Ingredient> {
+  IngredientSerializer(Class<? extends Ingredient> ingredientClass) {
+    super(ingredientClass, false);
+  }
+
+  /** Returns whether the ingredient class, rather than the runtime, overrides writeProperties. */
+  static boolean writesOwnProperties(Class<?> ingredientClass) {
+    for (Class<?> c = ingredientClass;
+        c != null && c != Ingredient.class && c != KeyedIngredient.class;
+        c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod("writeProperties", PropertyWriter.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // keep looking in the superclass
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void serialize(Ingredient value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    gen.writeStartObject(value);
+    value.writeProperties(new PropertyWriter(gen, provider));
+    gen.writeEndObject();
+  }
+
+  @Override
+  public void serializeWithType(
+      Ingredient value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+      throws IOException {
+    WritableTypeId typeId =
+        typeSer.writeTypePrefix(gen, typeSer.typeId(value, JsonToken.START_OBJECT));
+    value.writeProperties(new PropertyWriter(gen, provider));
+    typeSer.writeTypeSuffix(gen, typeId);
+  }
+}
@@ -1,6 +1,8 @@
 package ca.derekcormier.recipe;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.IOException;
+import java.util.Objects;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public abstract class KeyedIngredient extends Ingredient {
@@ -28,6 +30,33 @@ public abstract class KeyedIngredient extends Ingredient {
     this.key = key;
   }
 
+  @Override
+  protected boolean readProperty(String name, PropertyReader reader) throws IOException {
+    if ("key".equals(name)) {
+      key = reader.readString();
+      return true;
+    }
+    return super.readProperty(name, reader);
+  }
+
+  @Override
+  protected void writeProperties(PropertyWriter writer) throws IOException {
+    if (key != null) {
+      writer.writeString("key", key);
+    }
+    super.writeProperties(writer);
+  }
+
+  @Override
+  protected boolean propertiesEqual(Ingredient other) {
+    return Objects.equals(key, ((KeyedIngredient) other).key) && super.propertiesEqual(other);
+  }
+
+  @Override
+  protected int propertiesHashCode() {
+    return 31 * super.propertiesHashCode() + Objects.hashCode(key);
+  }
+
   public boolean hasKey() {
     return null != key;
   }
@@ -1,93 +1,367 @@
 package ca.derekcormier.recipe;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.NamedType;
-import com.fasterxml.jackson.databind.jsontype.SubtypeResolver;
-import com.fasterxml.jackson.databind.jsontype.impl.StdSubtypeResolver;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class Oven extends AbstractOven {
-  private Dispatcher defaultDispatcher;
-  private Map<String, Dispatcher> dispatchers = new HashMap<>();
-  private ObjectMapper objectMapper;
-  private SubtypeResolver subtypeResolver;
+  private static final TypeReference<Cake> CAKE = new TypeReference<Cake>() {};
+  private static final TypeReference<List<Cake>> CAKE_LIST = new TypeReference<List<Cake>>() {};
+
+  private Transport defaultDispatcher;
+  private Map<String, Transport> dispatchers = new HashMap<>();
+  private Map<String, Set<String>> independentDomains = new HashMap<>();
+  private Executor executor = ForkJoinPool.commonPool();
+  private boolean deltaPayloads = false;
+  private boolean reorderSegments = false;
+  private CakeCache cakeCache;
+  private final SerializationContext serializationContext;
+
+  public Oven() {
+    this(new SerializationContext());
+  }
+
+  public Oven(SerializationContext serializationContext) {
+    this.serializationContext = serializationContext;
+  }
 
   public Cake bake(Recipe recipe) {
-    this.subtypeResolver = new StdSubtypeResolver();
+    try {
+      return bakeAsync(recipe).join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException("could not bake cake", e.getCause());
+    }
+  }
 
-    registerSubtypes(recipe);
+  public CompletableFuture<Cake> bakeAsync(Recipe recipe) {
+    CakeCache cache = cakeCache;
+    if (cache == null || !recipe.isIdempotent()) {
+      return bakeUncached(recipe);
+    }
 
-    objectMapper = new ObjectMapper();
-    objectMapper.setSubtypeResolver(subtypeResolver);
+    Cake cached = cache.get(recipe);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(createCake(cached));
+    }
+    return bakeUncached(recipe)
+        .thenApply(
+            cake -> {
+              cache.put(recipe, cake);
+              return cake;
+            });
+  }
 
-    Cake cake = _bake(recipe, createCake());
-    return cake;
+  // Chains one dispatch per segment, each stage starting when the previous segment's cake arrives,
+  // so no thread is blocked waiting on a round trip unless a dispatcher itself blocks. Consecutive
+  // segments of independent domains are dispatched together with the same cake. Fixture pools
+  // call this directly, since their cakes must each come from a bake of their own.
+  CompletableFuture<Cake> bakeUncached(Recipe recipe) {
+    CompletableFuture<Cake> future;
+    try {
+      ObjectMapper objectMapper = serializationContext.getObjectMapper(recipe);
+      future = CompletableFuture.completedFuture(createCake());
+
+      for (List<Recipe.Segment> wave : groupIndependentSegments(segment(recipe))) {
+        if (wave.size() == 1) {
+          Recipe.Segment segment = wave.get(0);
+          Transport dispatcher = getDispatcher(segment.domain);
+          future =
+              future.thenCompose(cake -> dispatchSegment(segment, dispatcher, cake, objectMapper));
+        } else {
+          List<Transport> waveDispatchers = new ArrayList<>();
+          for (Recipe.Segment segment : wave) {
+            waveDispatchers.add(getDispatcher(segment.domain));
+          }
+          future =
+              future.thenCompose(
+                  cake -> dispatchConcurrently(wave, waveDispatchers, cake, objectMapper));
+        }
+      }
+    } catch (Exception e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+
+    return future.handle(
+        (cake, e) -> {
+          if (e != null) {
+            throw new RuntimeException(
+                "could not bake cake", e instanceof CompletionException ? e.getCause() : e);
+          }
+          return cake;
+        });
   }
 
-  private Cake _bake(Recipe recipe, Cake cake) {
+  /**
+   * Bakes several recipes with as few round trips as possible, returning one cake per recipe.
+   *
+   * <p>The recipes' segments are interleaved: each round takes the domain of the next segment of
+   * the first unfinished recipe and sends the next segment of every recipe waiting on that domain
+   * in one payload. The backend oven bakes each of them against its own cake, so recipes that share
+   * a shape cost one round trip per segment rather than one per segment per recipe.
+   */
+  public List<Cake> bakeAll(List<Recipe> recipes) {
     try {
-      List<Recipe.Segment> segments = recipe.segment();
-      for (Recipe.Segment segment : segments) {
-        String payload = serializePayload(segment.recipe, cake);
-
-        if (dispatchers.containsKey(segment.domain)) {
-          String jsonCake = dispatchers.get(segment.domain).dispatch(payload);
-          cake = deserializeCake(jsonCake);
-        } else if (defaultDispatcher != null) {
-          String jsonCake = defaultDispatcher.dispatch(payload);
-          cake = deserializeCake(jsonCake);
+      ObjectMapper objectMapper =
+          serializationContext.getObjectMapper(Recipe.prepare(recipes.toArray(new Recipe[0])));
+
+      List<Cake> cakes = new ArrayList<>();
+      List<List<Recipe.Segment>> segments = new ArrayList<>();
+      for (Recipe recipe : recipes) {
+        cakes.add(createCake());
+        segments.add(segment(recipe));
+      }
+
+      int[] nextSegment = new int[recipes.size()];
+      for (int first = 0; first < recipes.size(); ) {
+        if (nextSegment[first] == segments.get(first).size()) {
+          first++;
+          continue;
+        }
+
+        String domain = segments.get(first).get(nextSegment[first]).domain;
+        Transport dispatcher = getDispatcher(domain);
+
+        List<Integer> batch = new ArrayList<>();
+        for (int i = first; i < recipes.size(); i++) {
+          if (nextSegment[i] < segments.get(i).size()
+              && segments.get(i).get(nextSegment[i]).domain.equals(domain)) {
+            batch.add(i);
+          }
+        }
+
+        if (batch.size() == 1) {
+          int i = batch.get(0);
+          Recipe.Segment segment = segments.get(i).get(nextSegment[i]);
+          cakes.set(i, dispatchSegment(segment, dispatcher, cakes.get(i), objectMapper).join());
         } else {
-          throw new RuntimeException(
-              "cannot dispatch ingredient; no dispatcher registered for domain '"
-                  + segment.domain
-                  + "'");
+          List<Payload> payloads = new ArrayList<>();
+          for (int i : batch) {
+            Recipe.Segment segment = segments.get(i).get(nextSegment[i]);
+            payloads.add(new Payload(segment.recipe, new Cake(cakes.get(i)), deltaPayloads));
+          }
+
+          List<Cake> bakedCakes = dispatcher.send(payloads, objectMapper, CAKE_LIST).join();
+          if (bakedCakes.size() != batch.size()) {
+            throw new RuntimeException(
+                "expected " + batch.size() + " cakes in response but got " + bakedCakes.size());
+          }
+          for (int j = 0; j < batch.size(); j++) {
+            int i = batch.get(j);
+            cakes.set(i, receiveCake(bakedCakes.get(j), cakes.get(i)));
+          }
         }
+
+        batch.forEach(i -> nextSegment[i]++);
       }
-      return cake;
+      return cakes;
+    } catch (CompletionException e) {
+      throw new RuntimeException("could not bake cakes", e.getCause());
     } catch (Exception e) {
-      throw new RuntimeException("could not bake cake", e);
+      throw new RuntimeException("could not bake cakes", e);
     }
   }
 
-  public void addDispatcher(String domain, Dispatcher dispatcher) {
-    if (dispatchers.containsKey(domain)) {
-      throw new RuntimeException("oven already has a dispatcher for domain '" + domain + "'");
+  /**
+   * Declares that ingredients in each of the given domains never read cake keys published by
+   * ingredients in the others. Consecutive segments of mutually independent domains are then
+   * dispatched concurrently on the oven's executor, each with the cake as it was before the first
+   * of them, and the returned cakes are merged in segment order. The oven cannot see which keys a
+   * hook reads, so independence has to be declared.
+   */
+  public void declareIndependent(String... domains) {
+    for (String domain : domains) {
+      for (String other : domains) {
+        if (!domain.equals(other)) {
+          independentDomains.computeIfAbsent(domain, d -> new HashSet<>()).add(other);
+        }
+      }
     }
+  }
 
-    dispatchers.put(domain, dispatcher);
+  /**
+   * Asks backend ovens to respond with only the cake entries each segment added or changed, which
+   * the oven then merges into its own cake. This saves sending back entries the backend neither
+   * read nor changed, but requires every backend oven to be recent enough to understand it. Backend
+   * ovens send back the entries their hooks published, so a hook that changes a value it was sent
+   * in place must publish it again for the change to be sent back.
+   */
+  public void setDeltaPayloads(boolean deltaPayloads) {
+    this.deltaPayloads = deltaPayloads;
+  }
+
+  /**
+   * Lets the oven bake a recipe's ingredients out of order so that it sends them in fewer payloads.
+   * An ingredient is only moved ahead of another of a different domain when neither reads a cake
+   * key the other publishes and they don't publish the same key, and ingredients that don't declare
+   * the keys they read and publish in their cookbook keep their place. See {@link
+   * #getRoundTripsSaved} for what it saves for a recipe.
+   */
+  public void setReorderSegments(boolean reorderSegments) {
+    this.reorderSegments = reorderSegments;
+  }
+
+  /**
+   * Returns how many fewer round trips baking the recipe takes when segments are reordered, whether
+   * or not this oven reorders them.
+   */
+  public int getRoundTripsSaved(Recipe recipe) {
+    return recipe.getSegmentPlan().getSegments().size()
+        - recipe.getReorderedSegmentPlan().getSegments().size();
+  }
+
+  /**
+   * Sets a cache of cakes for {@link #bake} and {@link #bakeAsync} to reuse. A recipe whose
+   * ingredients are all declared idempotent in their cookbook is baked once, and an equal recipe
+   * baked later gets a copy of its cake until the cake is evicted; other recipes are always baked.
+   * Null, the default, turns caching off. A cache may be shared between ovens with the same
+   * dispatchers.
+   */
+  public void setCakeCache(CakeCache cakeCache) {
+    this.cakeCache = cakeCache;
+  }
+
+  /** Sets the executor that concurrently dispatched segments run on; the common pool by default. */
+  public void setExecutor(Executor executor) {
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  public void addDispatcher(String domain, Dispatcher dispatcher) {
+    addAsyncDispatcher(domain, AsyncDispatcher.of(dispatcher));
+  }
+
+  public void addAsyncDispatcher(String domain, AsyncDispatcher dispatcher) {
+    addTransport(domain, Transport.of(dispatcher));
+  }
+
+  /**
+   * Adds a dispatcher that streams payloads straight into its transport and reads cakes straight
+   * from the response, instead of passing them around as strings.
+   */
+  public void addStreamDispatcher(String domain, StreamDispatcher dispatcher) {
+    addTransport(domain, Transport.of(dispatcher));
   }
 
   public void setDefaultDispatcher(Dispatcher dispatcher) {
     _setDefaultDispatcher(dispatcher);
   }
 
+  public void setDefaultAsyncDispatcher(AsyncDispatcher dispatcher) {
+    _setDefaultAsyncDispatcher(dispatcher);
+  }
+
+  public void setDefaultStreamDispatcher(StreamDispatcher dispatcher) {
+    _setDefaultStreamDispatcher(dispatcher);
+  }
+
   protected void _setDefaultDispatcher(Dispatcher dispatcher) {
-    this.defaultDispatcher = dispatcher;
+    _setDefaultAsyncDispatcher(dispatcher == null ? null : AsyncDispatcher.of(dispatcher));
+  }
+
+  protected void _setDefaultAsyncDispatcher(AsyncDispatcher dispatcher) {
+    this.defaultDispatcher = dispatcher == null ? null : Transport.of(dispatcher);
+  }
+
+  protected void _setDefaultStreamDispatcher(StreamDispatcher dispatcher) {
+    this.defaultDispatcher = dispatcher == null ? null : Transport.of(dispatcher);
   }
 
-  private String serializePayload(Recipe recipe, Cake cake) throws JsonProcessingException {
-    Cake plainCake = new Cake(cake);
-    Payload payload = new Payload(recipe, plainCake);
-    return objectMapper.writeValueAsString(payload);
+  private void addTransport(String domain, Transport transport) {
+    if (dispatchers.containsKey(domain)) {
+      throw new RuntimeException("oven already has a dispatcher for domain '" + domain + "'");
+    }
+
+    dispatchers.put(domain, transport);
   }
 
-  private Cake deserializeCake(String json) throws IOException {
-    Cake plainCake = objectMapper.readValue(json, Cake.class);
-    return createCake(plainCake);
+  private List<Recipe.Segment> segment(Recipe recipe) {
+    return reorderSegments ? recipe.getReorderedSegmentPlan().getSegments() : recipe.segment();
   }
 
-  private void registerSubtypes(Recipe recipe) {
-    for (Ingredient ingredient : recipe.getIngredients()) {
-      if (ingredient instanceof Recipe) {
-        registerSubtypes((Recipe) ingredient);
-      } else {
-        subtypeResolver.registerSubtypes(
-            new NamedType(ingredient.getClass(), ingredient.getIngredientType()));
+  private List<List<Recipe.Segment>> groupIndependentSegments(List<Recipe.Segment> segments) {
+    List<List<Recipe.Segment>> waves = new ArrayList<>();
+    List<Recipe.Segment> wave = new ArrayList<>();
+    for (Recipe.Segment segment : segments) {
+      if (!wave.stream().allMatch(s -> isIndependent(s.domain, segment.domain))) {
+        waves.add(wave);
+        wave = new ArrayList<>();
       }
+      wave.add(segment);
+    }
+    if (!wave.isEmpty()) {
+      waves.add(wave);
+    }
+    return waves;
+  }
+
+  private boolean isIndependent(String domain, String other) {
+    return independentDomains.getOrDefault(domain, Collections.emptySet()).contains(other);
+  }
+
+  private CompletableFuture<Cake> dispatchSegment(
+      Recipe.Segment segment, Transport dispatcher, Cake cake, ObjectMapper objectMapper) {
+    Payload payload = new Payload(segment.recipe, new Cake(cake), deltaPayloads);
+    return dispatcher
+        .send(payload, objectMapper, CAKE)
+        .thenApply(bakedCake -> receiveCake(bakedCake, cake));
+  }
+
+  private CompletableFuture<Cake> dispatchConcurrently(
+      List<Recipe.Segment> segments,
+      List<Transport> segmentDispatchers,
+      Cake cake,
+      ObjectMapper objectMapper) {
+    List<CompletableFuture<Cake>> futures = new ArrayList<>();
+    for (int i = 0; i < segments.size(); i++) {
+      Recipe.Segment segment = segments.get(i);
+      Transport dispatcher = segmentDispatchers.get(i);
+      // hop onto the executor first so that synchronous dispatchers don't run one after another
+      futures.add(
+          CompletableFuture.supplyAsync(
+                  () -> dispatchSegment(segment, dispatcher, cake, objectMapper), executor)
+              .thenCompose(future -> future));
     }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .thenApply(
+            v -> {
+              Cake merged = createCake(cake);
+              for (CompletableFuture<Cake> future : futures) {
+                merged.mergeChanges(future.join(), cake);
+              }
+              return merged;
+            });
+  }
+
+  private Transport getDispatcher(String domain) {
+    if (dispatchers.containsKey(domain)) {
+      return dispatchers.get(domain);
+    } else if (defaultDispatcher != null) {
+      return defaultDispatcher;
+    }
+    throw new RuntimeException(
+        "cannot dispatch ingredient; no dispatcher registered for domain '" + domain + "'");
+  }
+
+  private Cake receiveCake(Cake bakedCake, Cake sentCake) {
+    if (!deltaPayloads) {
+      return createCake(bakedCake);
+    }
+
+    Cake cake = createCake(sentCake);
+    cake.putEntries(bakedCake);
+    return cake;
   }
 }
@@ -1,16 +1,28 @@
 package ca.derekcormier.recipe;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Payload {
   private Recipe recipe;
   private Cake cake;
 
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private boolean delta;
+
+  public Payload(Recipe recipe, Cake cake) {
+    this(recipe, cake, false);
+  }
+
   @JsonCreator
-  public Payload(@JsonProperty("recipe") Recipe recipe, @JsonProperty("cake") Cake cake) {
+  public Payload(
+      @JsonProperty("recipe") Recipe recipe,
+      @JsonProperty("cake") Cake cake,
+      @JsonProperty("delta") boolean delta) {
     this.recipe = recipe;
     this.cake = cake == null ? new Cake() : cake;
+    this.delta = delta;
   }
 
   public Ingredient getRecipe() {
@@ -20,4 +32,9 @@ public class Payload {
   public Cake getCake() {
     return cake;
   }
+
+  /** Whether the response should only contain the cake entries that baking added or changed. */
+  public boolean isDelta() {
+    return delta;
+  }
 }
@@ -0,0 +1,88 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The wire format of payloads and cakes sent over a {@link StreamDispatcher}. Json is the default
+ * and is understood by every backend oven; Smile, Jackson's binary json, is smaller and cheaper to
+ * encode and decode but must be supported on both ends. Reading a payload or cake that was encoded
+ * with the other codec fails with an error saying so, rather than a parse error.
+ */
+public final class PayloadCodec {
+  public static final PayloadCodec JSON = new PayloadCodec("application/json", new JsonFactory());
+  public static final PayloadCodec SMILE =
+      new PayloadCodec("application/x-jackson-smile", new SmileFactory());
+
+  private static final List<PayloadCodec> CODECS = Arrays.asList(JSON, SMILE);
+  // written at the start of every Smile document, and never valid at the start of a json one
+  private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+  private final String contentType;
+  private final JsonFactory factory;
+
+  private PayloadCodec(String contentType, JsonFactory factory) {
+    this.contentType = contentType;
+    this.factory = factory;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the codec for a content type such as a request's Content-Type header, ignoring any
+   * parameters. A missing content type means json.
+   */
+  public static PayloadCodec forContentType(String contentType) {
+    if (contentType == null) {
+      return JSON;
+    }
+
+    String mediaType = contentType.split(";", 2)[0].trim();
+    for (PayloadCodec codec : CODECS) {
+      if (codec.contentType.equalsIgnoreCase(mediaType)) {
+        return codec;
+      }
+    }
+    throw new IllegalArgumentException("unsupported payload content type '" + contentType + "'");
+  }
+
+  // Parsers and generators leave the streams open; whoever opened them closes them.
+  JsonParser createParser(InputStream in) throws IOException {
+    PushbackInputStream stream = new PushbackInputStream(in, SMILE_HEADER.length);
+    byte[] header = stream.readNBytes(SMILE_HEADER.length);
+    stream.unread(header);
+    if (Arrays.equals(header, SMILE_HEADER) != (this == SMILE)) {
+      throw new IOException(
+          "expected "
+              + contentType
+              + " but got "
+              + (this == SMILE ? JSON : SMILE)
+              + "; both ends of a stream dispatcher must use the same payload codec");
+    }
+
+    JsonParser parser = factory.createParser(stream);
+    parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    return parser;
+  }
+
+  JsonGenerator createGenerator(OutputStream out) throws IOException {
+    JsonGenerator generator = factory.createGenerator(out);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    return generator;
+  }
+
+  @Override
+  public String toString() {
+    return contentType;
+  }
+}
@@ -0,0 +1,12 @@
+package ca.derekcormier.recipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** A serialized payload that is written straight to a transport rather than held in memory. */
+public interface PayloadWriter {
+  /** The content type of the written payload, and of the cake the backend oven responds with. */
+  String getContentType();
+
+  void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,70 @@
+package ca.derekcormier.recipe;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable list whose {@link #append} returns a new list in amortized constant time. Lists
+ * appended to one another share a backing array: the first append to a list claims the next free
+ * slot of the array, and any later append to that same list copies the elements it can see into a
+ * new array instead. No list ever sees an element appended to another.
+ *
+ * <p>Generated ingredients keep their repeatable optionals in these, so that each call of a
+ * repeatable {@code with*} method appends to the copy it returns without copying the values so far.
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+  private static final PersistentList<?> EMPTY = new PersistentList<>(new Buffer(new Object[0]), 0);
+
+  private final Buffer buffer;
+  private final int size;
+
+  private PersistentList(Buffer buffer, int size) {
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <E> PersistentList<E> empty() {
+    return (PersistentList<E>) EMPTY;
+  }
+
+  public PersistentList<E> append(E element) {
+    if (size < buffer.elements.length && buffer.used.compareAndSet(size, size + 1)) {
+      buffer.elements[size] = element;
+      return new PersistentList<>(buffer, size + 1);
+    }
+
+    // copy only this list's elements, since the slots after them may belong to other lists
+    Object[] elements = new Object[Math.max(4, size * 2)];
+    System.arraycopy(buffer.elements, 0, elements, 0, size);
+    elements[size] = element;
+    Buffer grown = new Buffer(elements);
+    grown.used.set(size + 1);
+    return new PersistentList<>(grown, size + 1);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+    }
+    return (E) buffer.elements[index];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  // the slots of elements below used belong to some list; the rest are free to be claimed
+  private static final class Buffer {
+    private final Object[] elements;
+    private final AtomicInteger used = new AtomicInteger();
+
+    Buffer(Object[] elements) {
+      this.elements = elements;
+    }
+  }
+}
@@ -0,0 +1,323 @@
+package ca.derekcormier.recipe;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash array mapped trie. {@link #put} returns a new map that shares all but the path
+ * to the changed entry with the old one, so keeping earlier versions of a map around is cheap and
+ * taking a snapshot is free. Keys must not be null; values may be. Entries can't be removed, since
+ * cakes never remove them.
+ */
+final class PersistentMap<K, V> {
+  private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  // seven bitmap levels consume a 32 bit hash, plus one for a collision node
+  private static final int MAX_DEPTH = 8;
+  private static final Object NOT_FOUND = new Object();
+
+  private final Node root;
+  private final int size;
+
+  private PersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentMap<K, V> empty() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean containsKey(Object key) {
+    return find(key) != NOT_FOUND;
+  }
+
+  V get(Object key) {
+    return getOrDefault(key, null);
+  }
+
+  /** Returns the value for key, or defaultValue if there is no entry, in a single lookup. */
+  @SuppressWarnings("unchecked")
+  V getOrDefault(Object key, V defaultValue) {
+    Object value = find(key);
+    return value == NOT_FOUND ? defaultValue : (V) value;
+  }
+
+  /** Returns a map with the entry added or replaced, or this map if it already holds the value. */
+  PersistentMap<K, V> put(K key, V value) {
+    boolean[] added = new boolean[1];
+    Node newRoot = root.put(0, key.hashCode(), key, value, added);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  @SuppressWarnings("unchecked")
+  void forEach(BiConsumer<? super K, ? super V> action) {
+    root.forEach((BiConsumer<Object, Object>) action);
+  }
+
+  /** Returns an unmodifiable {@link Map} view of this map. */
+  Map<K, V> asMap() {
+    return new MapView();
+  }
+
+  // a loop rather than recursion through the nodes, which keeps lookups cheap to inline
+  private Object find(Object key) {
+    int hash = key.hashCode();
+    Node node = root;
+    for (int shift = 0; node instanceof BitmapNode; shift += BITS) {
+      int bitmap = ((BitmapNode) node).bitmap;
+      int bit = 1 << index(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return NOT_FOUND;
+      }
+
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+      Object k = node.array[i];
+      if (k != null) {
+        return key.equals(k) ? node.array[i + 1] : NOT_FOUND;
+      }
+      node = (Node) node.array[i + 1];
+    }
+    return ((CollisionNode) node).find(hash, key);
+  }
+
+  private static int index(int hash, int shift) {
+    return (hash >>> shift) & MASK;
+  }
+
+  private static Object[] cloneAndSet(Object[] array, int i, Object value) {
+    Object[] clone = array.clone();
+    clone[i] = value;
+    return clone;
+  }
+
+  // A node's array holds key/value pairs. In bitmap nodes, a null key marks a value that is a
+  // child node holding every entry whose hash continues down that branch.
+  private abstract static class Node {
+    final Object[] array;
+
+    Node(Object[] array) {
+      this.array = array;
+    }
+
+    abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+    void forEach(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (array[i] == null) {
+          ((Node) array[i + 1]).forEach(action);
+        } else {
+          action.accept(array[i], array[i + 1]);
+        }
+      }
+    }
+  }
+
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private final int bitmap;
+
+    BitmapNode(int bitmap, Object[] array) {
+      super(array);
+      this.bitmap = bitmap;
+    }
+
+    @Override
+    Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+      int bit = 1 << index(hash, shift);
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+
+      if ((bitmap & bit) == 0) {
+        Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, i);
+        newArray[i] = key;
+        newArray[i + 1] = value;
+        System.arraycopy(array, i, newArray, i + 2, array.length - i);
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, newArray);
+      }
+
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node child = ((Node) v).put(shift + BITS, hash, key, value, added);
+        return child == v ? this : new BitmapNode(bitmap, cloneAndSet(array, i + 1, child));
+      }
+      if (key.equals(k)) {
+        return v == value ? this : new BitmapNode(bitmap, cloneAndSet(array, i + 1, value));
+      }
+
+      added[0] = true;
+      Node child = createNode(shift + BITS, k, v, hash, key, value);
+      Object[] newArray = cloneAndSet(array, i, null);
+      newArray[i + 1] = child;
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    private static Node createNode(
+        int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+      int hash1 = key1.hashCode();
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+      }
+      boolean[] added = new boolean[1];
+      return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+    }
+  }
+
+  // Entries whose keys have the same hash code.
+  private static final class CollisionNode extends Node {
+    private final int hash;
+
+    CollisionNode(int hash, Object[] array) {
+      super(array);
+      this.hash = hash;
+    }
+
+    Object find(int hash, Object key) {
+      if (hash != this.hash) {
+        return NOT_FOUND;
+      }
+      int i = indexOf(key);
+      return i >= 0 ? array[i + 1] : NOT_FOUND;
+    }
+
+    @Override
+    Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        // nest this node in a bitmap node at the current level, where the hashes differ
+        Node parent = new BitmapNode(1 << index(this.hash, shift), new Object[] {null, this});
+        return parent.put(shift, hash, key, value, added);
+      }
+
+      int i = indexOf(key);
+      if (i >= 0) {
+        return array[i + 1] == value
+            ? this
+            : new CollisionNode(hash, cloneAndSet(array, i + 1, value));
+      }
+
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      added[0] = true;
+      return new CollisionNode(hash, newArray);
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private final class MapView extends AbstractMap<K, V> {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key != null && PersistentMap.this.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+      return key == null ? null : PersistentMap.this.get(key);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+      PersistentMap.this.forEach(action);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      return new AbstractSet<Entry<K, V>>() {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+    private final Object[][] arrays = new Object[MAX_DEPTH][];
+    private final int[] positions = new int[MAX_DEPTH];
+    private int depth = 0;
+    private Map.Entry<K, V> next;
+
+    EntryIterator() {
+      arrays[0] = root.array;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<K, V> entry = next;
+      advance();
+      return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      next = null;
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int i = positions[depth];
+        if (i >= array.length) {
+          depth--;
+          continue;
+        }
+
+        positions[depth] += 2;
+        if (array[i] == null) {
+          depth++;
+          arrays[depth] = ((Node) array[i + 1]).array;
+          positions[depth] = 0;
+        } else {
+          next = new AbstractMap.SimpleImmutableEntry<>((K) array[i], (V) array[i + 1]);
+          return;
+        }
+      }
+    }
+  }
+}
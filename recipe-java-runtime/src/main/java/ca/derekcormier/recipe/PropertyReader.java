@@ -0,0 +1,57 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import java.io.IOException;
+
+/**
+ * Reads the value of an ingredient property from a payload; see {@link Ingredient#readProperty}.
+ * Values are converted the same way jackson would convert them for a setter of the same type.
+ */
+public final class PropertyReader {
+  private final JsonParser parser;
+  private final DeserializationContext context;
+
+  PropertyReader(JsonParser parser, DeserializationContext context) {
+    this.parser = parser;
+    this.context = context;
+  }
+
+  public String readString() throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_STRING) {
+      return parser.getText();
+    }
+    return token == JsonToken.VALUE_NULL ? null : context.readValue(parser, String.class);
+  }
+
+  public int readInt() throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NUMBER_INT) {
+      return parser.getIntValue();
+    }
+    return token == JsonToken.VALUE_NULL ? 0 : context.readValue(parser, int.class);
+  }
+
+  public float readFloat() throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+      return parser.getFloatValue();
+    }
+    return token == JsonToken.VALUE_NULL ? 0.0f : context.readValue(parser, float.class);
+  }
+
+  public boolean readBoolean() throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+      return token == JsonToken.VALUE_TRUE;
+    }
+    return token != JsonToken.VALUE_NULL && context.readValue(parser, boolean.class);
+  }
+
+  /** Reads a value of any other type, such as an enum, an array or compound optional params. */
+  public <T> T read(Class<T> type) throws IOException {
+    return parser.currentToken() == JsonToken.VALUE_NULL ? null : context.readValue(parser, type);
+  }
+}
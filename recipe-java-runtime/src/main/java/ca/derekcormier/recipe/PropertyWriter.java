@@ -0,0 +1,61 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+
+/**
+ * Writes the properties of an ingredient to a payload; see {@link Ingredient#writeProperties}.
+ * Values are written the same way jackson would write them from a property of the same type.
+ */
+public final class PropertyWriter {
+  private final JsonGenerator generator;
+  private final SerializerProvider provider;
+
+  PropertyWriter(JsonGenerator generator, SerializerProvider provider) {
+    this.generator = generator;
+    this.provider = provider;
+  }
+
+  public void writeString(String name, String value) throws IOException {
+    generator.writeStringField(name, value);
+  }
+
+  public void writeInt(String name, int value) throws IOException {
+    generator.writeNumberField(name, value);
+  }
+
+  public void writeFloat(String name, float value) throws IOException {
+    generator.writeNumberField(name, value);
+  }
+
+  public void writeBoolean(String name, boolean value) throws IOException {
+    generator.writeBooleanField(name, value);
+  }
+
+  /** Writes a value of any other type, such as an enum or an array. */
+  public void write(String name, Object value) throws IOException {
+    provider.defaultSerializeField(name, value, generator);
+  }
+
+  public void writeStartObject(String name) throws IOException {
+    generator.writeObjectFieldStart(name);
+  }
+
+  /** Starts an object within an array, such as one of a repeatable compound optional's values. */
+  public void writeStartObject() throws IOException {
+    generator.writeStartObject();
+  }
+
+  public void writeEndObject() throws IOException {
+    generator.writeEndObject();
+  }
+
+  public void writeStartArray(String name) throws IOException {
+    generator.writeArrayFieldStart(name);
+  }
+
+  public void writeEndArray() throws IOException {
+    generator.writeEndArray();
+  }
+}
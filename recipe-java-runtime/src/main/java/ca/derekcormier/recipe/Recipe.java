@@ -3,6 +3,7 @@ package ca.derekcormier.recipe;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -14,22 +15,33 @@ public class Recipe extends Ingredient {
   @JsonProperty("context")
   private String context;
 
+  // computed on first use; 0 until then, like String's
+  private int hash;
+  private volatile SegmentPlan segmentPlan;
+  private volatile SegmentPlan reorderedSegmentPlan;
+
   protected Recipe() {
     super("Recipe");
-    this.ingredients = new ArrayList<>();
+    this.ingredients = Collections.emptyList();
+  }
+
+  private Recipe(List<Ingredient> ingredients) {
+    super("Recipe");
+    this.ingredients = ingredients;
   }
 
   protected Recipe(Ingredient... ingredients) {
     super("Recipe");
-    this.ingredients = new ArrayList<>();
+    List<Ingredient> list = new ArrayList<>();
     for (Ingredient ingredient : ingredients) {
       // flatten context-free recipes
       if (ingredient instanceof Recipe && ((Recipe) ingredient).context == null) {
-        this.ingredients.addAll(((Recipe) ingredient).ingredients);
+        list.addAll(((Recipe) ingredient).ingredients);
       } else {
-        this.ingredients.add(ingredient);
+        list.add(ingredient);
       }
     }
+    this.ingredients = Collections.unmodifiableList(list);
   }
 
   public static Recipe prepare(Ingredient... ingredients) {
@@ -47,6 +59,7 @@ public class Recipe extends Ingredient {
     return prepare(contextIngredient, context(contextIngredient.getKey(), ingredients));
   }
 
+  /** Returns the recipe's ingredients, which can't be changed once the recipe is prepared. */
   public List<Ingredient> getIngredients() {
     return ingredients;
   }
@@ -55,63 +68,87 @@ public class Recipe extends Ingredient {
     return context;
   }
 
-  // Segment the recipe into multiple recipes containing containing contiguous ingredients of the
-  // same domain while
-  // preserving the recipe and context structure. Baking the returned recipes in order is equivalent
-  // to baking the
-  // original recipe, but more efficient for sending payloads of ingredients to different services.
+  /**
+   * Segments the recipe into recipes of contiguous ingredients of the same domain, preserving the
+   * recipe and context structure around them. Baking the returned recipes in order is equivalent to
+   * baking this one, but sends each run of ingredients to its service in one payload. The segments
+   * are computed once and reused, since a recipe can't be changed once it's prepared.
+   */
   protected List<Segment> segment() {
-    List<Segment> segments = new ArrayList<>();
-    List<Recipe> recipeStack = new ArrayList<>();
-    recipeStack.add(this);
-    _segment(new Recipe(), recipeStack, null, segments);
-    return segments;
-  }
-
-  private void _segment(
-      Recipe currRecipe, List<Recipe> recipeStack, String currDomain, List<Segment> segments) {
-    for (Ingredient ingredient : recipeStack.get(0).ingredients) {
-      if (ingredient instanceof Recipe) {
-        Recipe recipe = new Recipe();
-        recipe.context = ((Recipe) ingredient).context;
-        recipeStack.add(0, (Recipe) ingredient);
-        _segment(recipe, recipeStack, currDomain, segments);
-
-        if (!recipe.ingredients.isEmpty()) {
-          currRecipe.ingredients.add(recipe);
-        }
-      } else {
-        if (!ingredient.getDomain().equals(currDomain)) {
-          // copy recipe structure
-          Recipe outerRecipe = null;
-          Recipe recipe = null;
-          for (Recipe r : recipeStack) {
-            if (recipe == null) {
-              outerRecipe = new Recipe();
-              recipe = outerRecipe;
-            } else {
-              outerRecipe = Recipe.prepare(outerRecipe);
-            }
-            outerRecipe.context = r.context;
-          }
-
-          Segment segmented = new Segment();
-          segmented.domain = ingredient.getDomain();
-          segmented.recipe = outerRecipe;
-          segments.add(segmented);
-
-          currRecipe = recipe;
-          currDomain = ingredient.getDomain();
-        }
-
-        currRecipe.ingredients.add(ingredient);
-      }
+    return getSegmentPlan().getSegments();
+  }
+
+  /**
+   * Recipes are equal when they have the same context and equal ingredients in the same order,
+   * whatever class of recipe or fixture prepared them, so a fixture equals the recipe it prepares.
+   * Since a recipe can't be changed once it's prepared, its hash code is computed once, and
+   * comparing hash codes first rejects most unequal recipes without walking them. Ingredients
+   * shouldn't be changed once they're added to a recipe; generated ingredients never are.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof Recipe)) {
+      return false;
+    }
+    Recipe other = (Recipe) o;
+    return hashCode() == other.hashCode()
+        && Objects.equals(context, other.context)
+        && ingredients.equals(other.ingredients);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      // computing it twice when two threads race is harmless, since both get the same value
+      h = 31 * Objects.hashCode(context) + ingredients.hashCode();
+      hash = h;
     }
-    recipeStack.remove(0);
+    return h;
   }
 
-  public class Segment {
-    public String domain;
-    public Recipe recipe;
+  /** A recipe is idempotent when every ingredient in it, however deeply nested, is. */
+  @Override
+  protected boolean isIdempotent() {
+    return SegmentPlan.flatten(this).stream().allMatch(leaf -> leaf.ingredient.isIdempotent());
+  }
+
+  SegmentPlan getSegmentPlan() {
+    SegmentPlan plan = segmentPlan;
+    if (plan == null) {
+      // computing it twice when two threads race is harmless, since plans are immutable
+      plan = SegmentPlan.compile(this);
+      segmentPlan = plan;
+    }
+    return plan;
+  }
+
+  SegmentPlan getReorderedSegmentPlan() {
+    SegmentPlan plan = reorderedSegmentPlan;
+    if (plan == null) {
+      plan = SegmentOptimizer.optimize(this);
+      reorderedSegmentPlan = plan;
+    }
+    return plan;
+  }
+
+  // a recipe with the same context and the given ingredients, for a segment
+  static Recipe structureOf(Recipe recipe, List<Ingredient> ingredients) {
+    Recipe copy = new Recipe(ingredients);
+    copy.context = recipe.context;
+    return copy;
+  }
+
+  public static class Segment {
+    public final String domain;
+    public final Recipe recipe;
+
+    Segment(String domain, Recipe recipe) {
+      this.domain = domain;
+      this.recipe = recipe;
+    }
   }
 }
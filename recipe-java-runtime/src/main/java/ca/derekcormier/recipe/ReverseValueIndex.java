@@ -0,0 +1,53 @@
+package ca.derekcormier.recipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Maps the values in a cake back to the keys they were published under. */
+final class ReverseValueIndex {
+  private final Cake.ValueIndex mode;
+  private final Map<Object, List<String>> keysByValue;
+
+  ReverseValueIndex(Cake.ValueIndex mode) {
+    this.mode = mode;
+    this.keysByValue = mode == Cake.ValueIndex.IDENTITY ? new IdentityHashMap<>() : new HashMap<>();
+  }
+
+  /** Records that key now holds value, where it previously held previousValue (or nothing). */
+  void put(String key, Object value, Object previousValue) {
+    if (previousValue != null) {
+      List<String> keys = keysByValue.get(previousValue);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByValue.remove(previousValue);
+        }
+      }
+    }
+
+    if (value != null) {
+      keysByValue.computeIfAbsent(value, v -> new ArrayList<>(1)).add(key);
+    }
+  }
+
+  /** Returns the keys whose value in entries is the given value. */
+  List<String> keysForValue(Object value, PersistentMap<String, Object> entries) {
+    if (value == null) {
+      return Collections.emptyList();
+    }
+
+    List<String> matchingKeys = new ArrayList<>(1);
+    for (String key : keysByValue.getOrDefault(value, Collections.emptyList())) {
+      // a value whose hash code changed after it was published can leave stale keys behind
+      Object entryValue = entries.get(key);
+      if (mode == Cake.ValueIndex.IDENTITY ? entryValue == value : value.equals(entryValue)) {
+        matchingKeys.add(key);
+      }
+    }
+    return matchingKeys;
+  }
+}
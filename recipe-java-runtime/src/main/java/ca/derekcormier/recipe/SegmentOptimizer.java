@@ -0,0 +1,215 @@
+package ca.derekcormier.recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reorders a recipe's ingredients so that they bake in as few segments as it can find, without
+ * moving an ingredient past another that it depends on through the cake. An ingredient depends on
+ * an earlier one when it reads a key the earlier one publishes, or publishes a key the earlier one
+ * reads or publishes. Ingredients of the same domain keep their order, and ingredients that don't
+ * declare which keys they read and publish are assumed to read and publish every key.
+ *
+ * <p>Since a cake key can resolve to an entry in another namespace, keys are compared part by part
+ * rather than as paths: two keys conflict when they share any part. An ingredient is taken to read
+ * the contexts it's baked in, since they have to be published before it bakes, and a key it
+ * publishes is taken to include them.
+ */
+final class SegmentOptimizer {
+  private SegmentOptimizer() {}
+
+  static SegmentPlan optimize(Recipe recipe) {
+    List<SegmentPlan.Leaf> leaves = SegmentPlan.flatten(recipe);
+    Dependencies dependencies = new Dependencies(leaves.size());
+    for (int i = 0; i < leaves.size(); i++) {
+      dependencies.add(i, leaves.get(i));
+    }
+
+    // The first ingredient not yet placed only depends on placed ones, so each segment starts with
+    // it and takes as many of the following ingredients of its domain as are ready by then. Every
+    // segment takes at least what's left of a segment of the recipe's own order, so there are never
+    // more segments than without reordering.
+    List<SegmentPlan.Leaf> ordered = new ArrayList<>(leaves.size());
+    boolean[] placed = new boolean[leaves.size()];
+    for (int first = 0; first < leaves.size(); first++) {
+      for (int i = first;
+          i >= 0 && !placed[i] && dependencies.pending[i] == 0;
+          i = dependencies.nextInDomain[i]) {
+        placed[i] = true;
+        ordered.add(leaves.get(i));
+        dependencies.release(i);
+      }
+    }
+    return SegmentPlan.build(ordered);
+  }
+
+  private static final class Dependencies {
+    // the number of ingredients each ingredient waits on, and the ingredients waiting on each
+    private final int[] pending;
+    private final List<List<Integer>> dependents;
+    // the last dependent linked to each ingredient, so that links aren't counted twice
+    private final int[] lastDependent;
+    private final int[] nextInDomain;
+    private final Map<String, Integer> lastInDomain = new HashMap<>();
+
+    // Ingredients since the last one that declares nothing, which every later ingredient waits on
+    // and which waits on everything before it, by key part they read and publish.
+    private int barrier = -1;
+    private final List<Integer> sinceBarrier = new ArrayList<>();
+    private final Map<String, List<Integer>> readers = new HashMap<>();
+    private final Map<String, List<Integer>> publishers = new HashMap<>();
+    private final List<Integer> readingAny = new ArrayList<>();
+    private final List<Integer> publishingAny = new ArrayList<>();
+    private final List<Integer> reading = new ArrayList<>();
+    private final List<Integer> publishing = new ArrayList<>();
+
+    Dependencies(int size) {
+      pending = new int[size];
+      dependents = new ArrayList<>(size);
+      lastDependent = new int[size];
+      nextInDomain = new int[size];
+      for (int i = 0; i < size; i++) {
+        dependents.add(null);
+      }
+      Arrays.fill(lastDependent, -1);
+      Arrays.fill(nextInDomain, -1);
+    }
+
+    void add(int index, SegmentPlan.Leaf leaf) {
+      Integer previous = lastInDomain.put(leaf.ingredient.getDomain(), index);
+      if (previous != null) {
+        link(previous, index);
+        nextInDomain[previous] = index;
+      }
+      if (barrier >= 0) {
+        link(barrier, index);
+      }
+
+      Set<String> readParts = parts(leaf.ingredient.getReadKeys());
+      Set<String> publishedParts = parts(leaf.ingredient.getPublishedKeys());
+      if (readParts == null && publishedParts == null) {
+        for (int i : sinceBarrier) {
+          link(i, index);
+        }
+        barrier = index;
+        sinceBarrier.clear();
+        readers.clear();
+        publishers.clear();
+        readingAny.clear();
+        publishingAny.clear();
+        reading.clear();
+        publishing.clear();
+        return;
+      }
+
+      List<String> contexts = contexts(leaf.node);
+      if (readParts != null) {
+        readParts.addAll(contexts);
+      }
+      if (publishedParts != null && !publishedParts.isEmpty()) {
+        publishedParts.addAll(contexts);
+      }
+
+      if (readParts == null) {
+        linkAll(publishing, index);
+      } else if (!readParts.isEmpty()) {
+        for (String part : readParts) {
+          linkAll(publishers.get(part), index);
+        }
+        linkAll(publishingAny, index);
+      }
+      if (publishedParts == null) {
+        linkAll(reading, index);
+        linkAll(publishing, index);
+      } else if (!publishedParts.isEmpty()) {
+        for (String part : publishedParts) {
+          linkAll(readers.get(part), index);
+          linkAll(publishers.get(part), index);
+        }
+        linkAll(readingAny, index);
+        linkAll(publishingAny, index);
+      }
+
+      sinceBarrier.add(index);
+      register(index, readParts, readers, readingAny, reading);
+      register(index, publishedParts, publishers, publishingAny, publishing);
+    }
+
+    void release(int index) {
+      List<Integer> waiting = dependents.get(index);
+      if (waiting != null) {
+        for (int dependent : waiting) {
+          pending[dependent]--;
+        }
+      }
+    }
+
+    private void link(int dependency, int dependent) {
+      if (lastDependent[dependency] == dependent) {
+        return;
+      }
+      lastDependent[dependency] = dependent;
+      if (dependents.get(dependency) == null) {
+        dependents.set(dependency, new ArrayList<>());
+      }
+      dependents.get(dependency).add(dependent);
+      pending[dependent]++;
+    }
+
+    private void linkAll(List<Integer> dependencies, int dependent) {
+      if (dependencies != null) {
+        for (int dependency : dependencies) {
+          link(dependency, dependent);
+        }
+      }
+    }
+
+    private static void register(
+        int index,
+        Set<String> parts,
+        Map<String, List<Integer>> byPart,
+        List<Integer> any,
+        List<Integer> all) {
+      if (parts == null) {
+        any.add(index);
+        all.add(index);
+      } else if (!parts.isEmpty()) {
+        for (String part : parts) {
+          byPart.computeIfAbsent(part, p -> new ArrayList<>()).add(index);
+        }
+        all.add(index);
+      }
+    }
+
+    // Splits the keys into their parts. Returns null for undeclared keys.
+    private static Set<String> parts(List<String> keys) {
+      if (keys == null) {
+        return null;
+      }
+      Set<String> parts = new HashSet<>();
+      for (String key : keys) {
+        if (key != null) {
+          parts.addAll(Arrays.asList(StringUtils.split(key, Cake.SEPARATOR)));
+        }
+      }
+      return parts;
+    }
+
+    // the contexts of the given recipe and those enclosing it
+    private static List<String> contexts(SegmentPlan.Node node) {
+      List<String> contexts = new ArrayList<>();
+      for (; node != null; node = node.parent) {
+        if (node.recipe.getContext() != null) {
+          contexts.add(node.recipe.getContext());
+        }
+      }
+      return contexts;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package ca.derekcormier.recipe;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The segments a recipe is baked in: contiguous runs of ingredients of the same domain, each
+ * wrapped in a copy of the recipe and context structure around it. Baking the segments in order is
+ * equivalent to baking the recipe. Plans are immutable, and each recipe caches its own.
+ */
+final class SegmentPlan {
+  private final List<Recipe.Segment> segments;
+
+  private SegmentPlan(List<Recipe.Segment> segments) {
+    this.segments = Collections.unmodifiableList(segments);
+  }
+
+  List<Recipe.Segment> getSegments() {
+    return segments;
+  }
+
+  static SegmentPlan compile(Recipe recipe) {
+    return build(flatten(recipe));
+  }
+
+  // Lists the recipe's ingredients depth first, with an explicit stack of the recipes enclosing the
+  // current one so that deeply nested recipes can't overflow the call stack.
+  static List<Leaf> flatten(Recipe recipe) {
+    List<Leaf> leaves = new ArrayList<>();
+    List<Frame> stack = new ArrayList<>();
+    stack.add(new Frame(new Node(recipe, null)));
+
+    while (!stack.isEmpty()) {
+      Frame frame = stack.get(stack.size() - 1);
+      List<Ingredient> ingredients = frame.node.recipe.getIngredients();
+      if (frame.next == ingredients.size()) {
+        stack.remove(stack.size() - 1);
+        continue;
+      }
+
+      Ingredient ingredient = ingredients.get(frame.next++);
+      if (ingredient instanceof Recipe) {
+        stack.add(new Frame(new Node((Recipe) ingredient, frame.node)));
+      } else {
+        leaves.add(new Leaf(ingredient, frame.node));
+      }
+    }
+    return leaves;
+  }
+
+  // Groups the ingredients, in the order given, into segments of consecutive ingredients of the
+  // same domain. A segment's copies of the recipes enclosing its ingredients are views that are
+  // only built as they're read, so a plan takes space in proportion to the recipe even when every
+  // segment has to carry a long chain of contexts.
+  static SegmentPlan build(List<Leaf> leaves) {
+    List<Recipe.Segment> segments = new ArrayList<>();
+    int start = 0;
+    for (int i = 1; i <= leaves.size(); i++) {
+      String domain = leaves.get(start).ingredient.getDomain();
+      if (i == leaves.size() || !leaves.get(i).ingredient.getDomain().equals(domain)) {
+        Node root = leaves.get(start).node.ancestor(0);
+        segments.add(new Recipe.Segment(domain, new Structure(root, leaves, start, i).recipe()));
+        start = i;
+      }
+    }
+    return new SegmentPlan(segments);
+  }
+
+  /**
+   * The ingredients of a copy of a recipe in a segment: the segment's ingredients that are directly
+   * in the recipe, and a copy of each recipe below it for every run of ingredients in that recipe.
+   * Copies of the recipes below are made each time they're read, rather than kept.
+   */
+  private static final class Structure extends AbstractList<Ingredient> implements RandomAccess {
+    private final Node node;
+    private final List<Leaf> leaves;
+    // the first of the leaves in each run, and the end of the last run
+    private final int[] starts;
+
+    Structure(Node node, List<Leaf> leaves, int from, int to) {
+      this.node = node;
+      this.leaves = leaves;
+      int[] runs = new int[to - from + 1];
+      int count = 0;
+      for (int i = from; i < to; count++) {
+        runs[count] = i;
+        Node child = childOnPath(i);
+        i++;
+        while (child != null && i < to && childOnPath(i) == child) {
+          i++;
+        }
+      }
+      runs[count] = to;
+      this.starts = Arrays.copyOf(runs, count + 1);
+    }
+
+    Recipe recipe() {
+      return Recipe.structureOf(node.recipe, this);
+    }
+
+    @Override
+    public Ingredient get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size());
+      }
+      Node child = childOnPath(starts[index]);
+      if (child == null) {
+        return leaves.get(starts[index]).ingredient;
+      }
+      return new Structure(child, leaves, starts[index], starts[index + 1]).recipe();
+    }
+
+    @Override
+    public int size() {
+      return starts.length - 1;
+    }
+
+    // the recipe directly below this one that encloses the leaf, or null if the leaf is in this one
+    private Node childOnPath(int leaf) {
+      Node leafNode = leaves.get(leaf).node;
+      return leafNode == node ? null : leafNode.ancestor(node.depth + 1);
+    }
+  }
+
+  /** A recipe in the tree being segmented, linked to the recipe enclosing it. */
+  static final class Node {
+    final Recipe recipe;
+    final Node parent;
+    final int depth;
+    // the ancestors 1, 2, 4, 8 and so on levels up, to find an ancestor in logarithmic time
+    private final Node[] jumps;
+
+    Node(Recipe recipe, Node parent) {
+      this.recipe = recipe;
+      this.parent = parent;
+      this.depth = parent == null ? 0 : parent.depth + 1;
+      this.jumps = new Node[32 - Integer.numberOfLeadingZeros(depth)];
+      if (jumps.length > 0) {
+        jumps[0] = parent;
+        for (int i = 1; i < jumps.length; i++) {
+          jumps[i] = jumps[i - 1].jumps[i - 1];
+        }
+      }
+    }
+
+    /** Returns this recipe's enclosing recipe at the given depth, or this one at its own depth. */
+    Node ancestor(int depth) {
+      Node node = this;
+      for (int i = 0, levels = this.depth - depth; levels > 0; i++, levels >>= 1) {
+        if ((levels & 1) != 0) {
+          node = node.jumps[i];
+        }
+      }
+      return node;
+    }
+  }
+
+  /** An ingredient other than a recipe, along with the recipe it appears in. */
+  static final class Leaf {
+    final Ingredient ingredient;
+    final Node node;
+
+    Leaf(Ingredient ingredient, Node node) {
+      this.ingredient = ingredient;
+      this.node = node;
+    }
+  }
+
+  private static final class Frame {
+    private final Node node;
+    private int next;
+
+    Frame(Node node) {
+      this.node = node;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.SubtypeResolver;
+import com.fasterxml.jackson.databind.jsontype.impl.StdSubtypeResolver;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived serialization state for an {@link Oven}.
+ *
+ * <p>Jackson resolves ingredient type names from the subtypes registered on its mapper, and caches
+ * serializers per mapper, so rebuilding the mapper for every bake throws that work away. A context
+ * keeps one mapper for as long as the ingredient classes it has seen stay the same, and only
+ * rebuilds it (copy-on-write) the first time a recipe contains a new ingredient class. Contexts are
+ * safe to share between threads and between ovens.
+ */
+public class SerializationContext {
+  private final Map<Class<?>, String> ingredientTypes = new ConcurrentHashMap<>();
+  private volatile ObjectMapper objectMapper = createObjectMapper(ingredientTypes);
+
+  /**
+   * Returns a mapper that can serialize every ingredient in the recipe, registering ingredient
+   * classes that have not been seen before.
+   */
+  ObjectMapper getObjectMapper(Recipe recipe) {
+    Map<Class<?>, String> unregistered = new HashMap<>();
+    if (!collectUnregisteredTypes(recipe, unregistered)) {
+      return createRecipeObjectMapper(recipe);
+    }
+
+    if (unregistered.isEmpty()) {
+      return objectMapper;
+    }
+
+    synchronized (this) {
+      unregistered.clear();
+      if (!collectUnregisteredTypes(recipe, unregistered)) {
+        return createRecipeObjectMapper(recipe);
+      }
+
+      Map<Class<?>, String> types = new HashMap<>(ingredientTypes);
+      types.putAll(unregistered);
+
+      // publish the mapper before the types so that no reader sees a type without its mapper
+      objectMapper = createObjectMapper(types);
+      ingredientTypes.putAll(unregistered);
+      return objectMapper;
+    }
+  }
+
+  /** Returns a mapper for payload data that contains no ingredients, such as a cake. */
+  ObjectMapper getObjectMapper() {
+    return objectMapper;
+  }
+
+  private boolean collectUnregisteredTypes(Recipe recipe, Map<Class<?>, String> unregistered) {
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      if (ingredient instanceof Recipe) {
+        if (!collectUnregisteredTypes((Recipe) ingredient, unregistered)) {
+          return false;
+        }
+        continue;
+      }
+
+      String ingredientType = ingredientTypes.get(ingredient.getClass());
+      if (ingredientType == null) {
+        ingredientType =
+            unregistered.putIfAbsent(ingredient.getClass(), ingredient.getIngredientType());
+      }
+      if (ingredientType != null && !ingredientType.equals(ingredient.getIngredientType())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The same class is used for more than one ingredient type, which a single mapper can't
+  // represent, so fall back to a throwaway mapper for this recipe alone.
+  private ObjectMapper createRecipeObjectMapper(Recipe recipe) {
+    Map<Class<?>, String> recipeTypes = new HashMap<>();
+    collectTypes(recipe, recipeTypes);
+    return createObjectMapper(recipeTypes);
+  }
+
+  private void collectTypes(Recipe recipe, Map<Class<?>, String> types) {
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      if (ingredient instanceof Recipe) {
+        collectTypes((Recipe) ingredient, types);
+      } else {
+        types.put(ingredient.getClass(), ingredient.getIngredientType());
+      }
+    }
+  }
+
+  private static ObjectMapper createObjectMapper(Map<Class<?>, String> types) {
+    SubtypeResolver subtypeResolver = new StdSubtypeResolver();
+    subtypeResolver.registerSubtypes(new NamedType(Recipe.class, "Recipe"));
+    types.forEach((clazz, name) -> subtypeResolver.registerSubtypes(new NamedType(clazz, name)));
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.setSubtypeResolver(subtypeResolver);
+    objectMapper.registerModule(
+        new SimpleModule().setSerializerModifier(new IngredientSerializerAssigner()));
+    return objectMapper;
+  }
+
+  // Serializes ingredients that write their own properties, such as generated ones, without
+  // jackson's bean serializer.
+  private static class IngredientSerializerAssigner extends BeanSerializerModifier {
+    @Override
+    public JsonSerializer<?> modifySerializer(
+        SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+      Class<?> beanClass = beanDesc.getBeanClass();
+      if (Ingredient.class.isAssignableFrom(beanClass)
+          && IngredientSerializer.writesOwnProperties(beanClass)) {
+        return new IngredientSerializer(beanClass.asSubclass(Ingredient.class));
+      }
+      return serializer;
+    }
+  }
+}
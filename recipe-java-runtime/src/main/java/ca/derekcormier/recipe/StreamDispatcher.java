@@ -0,0 +1,37 @@
+package ca.derekcormier.recipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Dispatches payloads over a byte stream transport. The dispatcher writes the payload to its
+ * request body with {@link PayloadWriter#writeTo} and returns the response body, which the oven
+ * reads and closes. Neither the payload nor the returned cake is ever held in memory as a string.
+ */
+@FunctionalInterface
+public interface StreamDispatcher {
+  InputStream dispatch(PayloadWriter payload) throws IOException;
+
+  /**
+   * The codec that the backend oven behind this dispatcher understands. Payloads are encoded with
+   * it and the response is expected in the same format. Json unless overridden.
+   */
+  default PayloadCodec getCodec() {
+    return PayloadCodec.JSON;
+  }
+
+  /** Returns a dispatcher that sends payloads to the given one encoded with the given codec. */
+  static StreamDispatcher withCodec(PayloadCodec codec, StreamDispatcher dispatcher) {
+    return new StreamDispatcher() {
+      @Override
+      public InputStream dispatch(PayloadWriter payload) throws IOException {
+        return dispatcher.dispatch(payload);
+      }
+
+      @Override
+      public PayloadCodec getCodec() {
+        return codec;
+      }
+    };
+  }
+}
@@ -0,0 +1,57 @@
+package ca.derekcormier.recipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Indexes cake keys by their sub-keys in reverse, last sub-key first, so that the keys ending in a
+ * given key path can be found in time proportional to the depth of the path rather than the number
+ * of keys. Keys are only ever added, matching a cake's entries.
+ */
+final class SuffixIndex {
+  private final Node root = new Node();
+
+  void add(String key) {
+    // split the same way lookups always have, ignoring empty sub-keys
+    String[] subKeys = StringUtils.split(key, Cake.SEPARATOR);
+    Node node = root;
+    for (int i = subKeys.length - 1; i >= 0; i--) {
+      node = node.children.computeIfAbsent(subKeys[i], k -> new Node());
+      node.count++;
+    }
+    node.keys.add(key);
+  }
+
+  /** Returns every key whose trailing sub-keys are those of the given key. */
+  List<String> keysEndingWith(CakeKey key) {
+    Node node = root;
+    for (CakeKey k = key; !k.isRoot(); k = k.getParent()) {
+      node = node.children.get(k.getLastSubKey());
+      if (node == null) {
+        return Collections.emptyList();
+      }
+    }
+
+    List<String> keys = new ArrayList<>(node.count);
+    collectKeys(node, keys);
+    return keys;
+  }
+
+  private static void collectKeys(Node node, List<String> keys) {
+    keys.addAll(node.keys);
+    for (Node child : node.children.values()) {
+      collectKeys(child, keys);
+    }
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>(2);
+    private final List<String> keys = new ArrayList<>(1);
+    // the number of keys ending at or below this node
+    private int count;
+  }
+}
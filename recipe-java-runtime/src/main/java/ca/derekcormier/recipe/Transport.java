@@ -0,0 +1,77 @@
+package ca.derekcormier.recipe;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/** Sends a payload to a backend oven through one of the dispatcher flavours and reads the reply. */
+abstract class Transport {
+  abstract <T> CompletableFuture<T> send(
+      Object payload, ObjectMapper objectMapper, TypeReference<T> responseType);
+
+  static Transport of(AsyncDispatcher dispatcher) {
+    return new Transport() {
+      @Override
+      <T> CompletableFuture<T> send(
+          Object payload, ObjectMapper objectMapper, TypeReference<T> responseType) {
+        String json;
+        try {
+          json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+          return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        return dispatcher
+            .dispatch(json)
+            .thenApply(
+                response -> {
+                  try {
+                    return objectMapper.readValue(response, responseType);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+      }
+    };
+  }
+
+  static Transport of(StreamDispatcher dispatcher) {
+    return new Transport() {
+      @Override
+      <T> CompletableFuture<T> send(
+          Object payload, ObjectMapper objectMapper, TypeReference<T> responseType) {
+        PayloadCodec codec = dispatcher.getCodec();
+        PayloadWriter writer =
+            new PayloadWriter() {
+              @Override
+              public String getContentType() {
+                return codec.getContentType();
+              }
+
+              @Override
+              public void writeTo(OutputStream out) throws IOException {
+                try (JsonGenerator generator = codec.createGenerator(out)) {
+                  objectMapper.writeValue(generator, payload);
+                }
+              }
+            };
+
+        try (InputStream response = dispatcher.dispatch(writer);
+            JsonParser parser = codec.createParser(response)) {
+          return CompletableFuture.completedFuture(objectMapper.readValue(parser, responseType));
+        } catch (IOException e) {
+          return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+          return CompletableFuture.failedFuture(e);
+        }
+      }
+    };
+  }
+}
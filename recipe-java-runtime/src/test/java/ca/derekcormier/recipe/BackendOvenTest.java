@@ -1,13 +1,35 @@
 package ca.derekcormier.recipe;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 public class BackendOvenTest {
@@ -86,6 +108,504 @@ public class BackendOvenTest {
     verify(hook).bake(any(), any());
   }
 
+  @Test
+  public void testBakeAll_bakesEachPayloadAgainstItsOwnCake() throws Exception {
+    oven.registerHook(new PublishingIngredientHook());
+
+    String cakes =
+        oven.bakeAll(
+            "[{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"a\":1}},"
+                + "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"b\":2}}]");
+
+    List<Cake> bakedCakes = new ObjectMapper().readValue(cakes, new TypeReference<List<Cake>>() {});
+    assertEquals(2, bakedCakes.size());
+    assertEquals(1, (int) bakedCakes.get(0).get("a"));
+    assertEquals(true, bakedCakes.get(0).get("baked"));
+    assertFalse(bakedCakes.get(0).getEntries().containsKey("b"));
+    assertEquals(2, (int) bakedCakes.get(1).get("b"));
+    assertEquals(true, bakedCakes.get(1).get("baked"));
+    assertFalse(bakedCakes.get(1).getEntries().containsKey("a"));
+  }
+
+  @Test
+  public void testBake_bakesBatchPayload() {
+    EmptyIngredientHook hook = spy(EmptyIngredientHook.class);
+    oven.registerHook(hook);
+
+    String cakes =
+        oven.bake(
+            " [{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}},"
+                + "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}}]");
+
+    verify(hook, times(2)).bake(any(), any());
+    assertEquals("[{},{}]", cakes);
+  }
+
+  @Test
+  public void testBake_deltaPayloadReturnsOnlyChangedEntries() {
+    oven.registerHook(new PublishingIngredientHook());
+
+    String cake =
+        oven.bake(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"a\":1},\"delta\":true}");
+
+    assertEquals("{\"baked\":true}", cake);
+  }
+
+  @Test
+  public void testBake_deltaPayloadReturnsOverwrittenEntries() {
+    oven.registerHook(new PublishingIngredientHook());
+
+    String cake =
+        oven.bake(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"baked\":false},\"delta\":true}");
+
+    assertEquals("{\"baked\":true}", cake);
+  }
+
+  @Test
+  public void testBake_deltaPayloadReturnsEntriesChangedInPlaceAndPublishedAgain() {
+    oven.registerHook(new AppendingIngredientHook());
+
+    String cake =
+        oven.bake(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"AppendingIngredient\":{}}]}},\"cake\":{\"a\":1,\"items\":[1]},\"delta\":true}");
+
+    assertEquals("{\"items\":[1,2]}", cake);
+  }
+
+  @Test
+  public void testBake_fullPayloadReturnsWholeCake() {
+    oven.registerHook(new PublishingIngredientHook());
+
+    String cake =
+        oven.bake(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"a\":1}}");
+
+    assertEquals("{\"a\":1,\"baked\":true}", cake);
+  }
+
+  @Test
+  public void testBake_streamsCakeToOutputStream() {
+    oven.registerHook(new PublishingIngredientHook());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    oven.bake(
+        stream(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"a\":1}}"),
+        out);
+
+    assertEquals("{\"a\":1,\"baked\":true}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testBake_streamsBatchPayload() {
+    oven.registerHook(new EmptyIngredientHook());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    oven.bake(
+        stream(
+            "[{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}},"
+                + "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}}]"),
+        out);
+
+    assertEquals("[{},{}]", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testBake_leavesStreamsOpen() {
+    oven.registerHook(new EmptyIngredientHook());
+    byte[] json =
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}}"
+            .getBytes(StandardCharsets.UTF_8);
+    InputStream in =
+        new ByteArrayInputStream(json) {
+          @Override
+          public void close() {
+            fail("input stream closed");
+          }
+        };
+    OutputStream out =
+        new ByteArrayOutputStream() {
+          @Override
+          public void close() {
+            fail("output stream closed");
+          }
+        };
+
+    oven.bake(in, out);
+  }
+
+  @Test
+  public void testBake_readsAndWritesWithCodec() throws Exception {
+    oven.registerHook(new PublishingIngredientHook());
+    ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    byte[] payload =
+        smileMapper.writeValueAsBytes(
+            new ObjectMapper()
+                .readTree(
+                    "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}},\"cake\":{\"a\":1}}"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    oven.bake(new ByteArrayInputStream(payload), out, PayloadCodec.SMILE);
+
+    assertEquals("{\"a\":1,\"baked\":true}", smileMapper.readTree(out.toByteArray()).toString());
+  }
+
+  @Test
+  public void testBake_rejectsPayloadEncodedWithOtherCodec() throws Exception {
+    oven.registerHook(new PublishingIngredientHook());
+    byte[] payload =
+        new ObjectMapper(new SmileFactory())
+            .writeValueAsBytes(
+                new ObjectMapper()
+                    .readTree(
+                        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}}}"));
+
+    try {
+      oven.bake(new ByteArrayInputStream(payload), new ByteArrayOutputStream());
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertEquals(
+          "expected application/json but got application/x-jackson-smile; both ends of a stream"
+              + " dispatcher must use the same payload codec",
+          e.getCause().getMessage());
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testBake_streamThrowsOnMissingIngredientHook() {
+    oven.bake(
+        stream("{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"TestIngredient\":{}}]}}}"),
+        new ByteArrayOutputStream());
+  }
+
+  private static InputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testSetValueIndex_hooksGetIndexedCake() {
+    ValueLookupHook hook = new ValueLookupHook();
+    oven.registerHook(hook);
+    oven.setValueIndex(Cake.ValueIndex.IDENTITY);
+
+    oven.bake("{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"ValueLookupIngredient\":{}}]}}}");
+
+    assertEquals("key", hook.foundKey);
+  }
+
+  @Test
+  public void testSetParallelExecutor_bakesSiblingContextsOnExecutor() throws Exception {
+    AtomicInteger tasks = new AtomicInteger();
+    oven.setParallelExecutor(
+        task -> {
+          tasks.incrementAndGet();
+          task.run();
+        });
+    oven.registerHook(new PublishingIngredientHook());
+
+    String cake =
+        oven.bake(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":["
+                + "{\"Recipe\":{\"context\":\"a\",\"ingredients\":[{\"PublishingIngredient\":{}}]}},"
+                + "{\"Recipe\":{\"context\":\"b\",\"ingredients\":[{\"PublishingIngredient\":{}}]}}]}},"
+                + "\"cake\":{\"c\":1}}");
+
+    Cake bakedCake = new ObjectMapper().readValue(cake, Cake.class);
+    assertEquals(2, tasks.get());
+    assertEquals(3, bakedCake.getEntries().size());
+    assertEquals(true, bakedCake.get("a.baked"));
+    assertEquals(true, bakedCake.get("b.baked"));
+    assertEquals(1, (int) bakedCake.get("c"));
+  }
+
+  @Test
+  public void testSetParallelExecutor_deltaPayloadReturnsEntriesPublishedBySiblings() {
+    oven.setParallelExecutor(Runnable::run);
+    oven.registerHook(new PublishingIngredientHook());
+
+    String cake =
+        oven.bake(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":["
+                + "{\"Recipe\":{\"context\":\"a\",\"ingredients\":[{\"PublishingIngredient\":{}}]}},"
+                + "{\"Recipe\":{\"context\":\"b\",\"ingredients\":[{\"PublishingIngredient\":{}}]}}]}},"
+                + "\"cake\":{\"c\":1},\"delta\":true}");
+
+    assertEquals("{\"a.baked\":true,\"b.baked\":true}", cake);
+  }
+
+  @Test
+  public void testSetParallelExecutor_bakesThreadUnsafeHooksOnCallingThread() {
+    AtomicInteger tasks = new AtomicInteger();
+    oven.setParallelExecutor(
+        task -> {
+          tasks.incrementAndGet();
+          task.run();
+        });
+    EmptyIngredientHook hook = spy(EmptyIngredientHook.class);
+    Mockito.doReturn(false).when(hook).isThreadSafe();
+    oven.registerHook(hook);
+
+    oven.bake(
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":["
+            + "{\"Recipe\":{\"context\":\"a\",\"ingredients\":[{\"EmptyIngredient\":{}}]}},"
+            + "{\"Recipe\":{\"context\":\"b\",\"ingredients\":[{\"EmptyIngredient\":{}}]}}]}}}");
+
+    assertEquals(0, tasks.get());
+    verify(hook, times(2)).bake(any(), any());
+  }
+
+  @Test
+  public void testSetParallelExecutor_concurrentCakesStayConcurrent() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    oven.setConcurrentCakes(true);
+    oven.setParallelExecutor(executor);
+    oven.registerHook(new ConcurrentPublishingIngredientHook());
+
+    String cake;
+    try {
+      cake =
+          oven.bake(
+              "{\"recipe\":{\"Recipe\":{\"ingredients\":["
+                  + "{\"Recipe\":{\"context\":\"a\",\"ingredients\":[{\"ConcurrentPublishingIngredient\":{}}]}},"
+                  + "{\"Recipe\":{\"context\":\"b\",\"ingredients\":[{\"ConcurrentPublishingIngredient\":{}}]}}]}}}");
+    } finally {
+      executor.shutdown();
+    }
+
+    Cake bakedCake = new ObjectMapper().readValue(cake, Cake.class);
+    assertEquals(200, bakedCake.getEntries().size());
+    assertEquals(99, (int) bakedCake.get("a.99"));
+    assertEquals(99, (int) bakedCake.get("b.99"));
+  }
+
+  @Test
+  public void testSetParallelExecutor_throwsOnConflictingSiblings() {
+    oven.setParallelExecutor(Runnable::run);
+    oven.registerHook(new PublishingIngredientHook());
+
+    try {
+      oven.bake(
+          "{\"recipe\":{\"Recipe\":{\"ingredients\":["
+              + "{\"Recipe\":{\"context\":\"a\",\"ingredients\":[{\"PublishingIngredient\":{}}]}},"
+              + "{\"Recipe\":{\"context\":\"a\",\"ingredients\":[{\"PublishingIngredient\":{}}]}}]}}}");
+      fail("expected conflicting siblings to fail");
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testBake_bakesConsecutiveIngredientsOfSameTypeAsBatch() {
+    List<String> calls = new ArrayList<>();
+    oven.registerHook(
+        new EmptyIngredientHook() {
+          @Override
+          public void bake(EmptyIngredientData ingredient, Cake cake) {
+            calls.add("bake");
+          }
+
+          @Override
+          public void bakeBatch(List<EmptyIngredientData> ingredients, Cake cake) {
+            calls.add("batch of " + ingredients.size());
+          }
+        });
+    oven.registerHook(
+        new IngredientWithRequiredHook() {
+          @Override
+          public void bake(IngredientWithRequiredData ingredient, Cake cake) {
+            calls.add("required");
+          }
+        });
+
+    oven.bake(
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":["
+            + "{\"EmptyIngredient\":{}},{\"EmptyIngredient\":{}},{\"EmptyIngredient\":{}},"
+            + "{\"IngredientWithRequired\":{}},{\"EmptyIngredient\":{}},"
+            + "{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}},{\"EmptyIngredient\":{}}]}}}");
+
+    assertEquals(Arrays.asList("batch of 3", "required", "bake", "bake", "bake"), calls);
+  }
+
+  @Test
+  public void testBake_batchDefaultsToBakingEachIngredient() {
+    EmptyIngredientHook hook = spy(EmptyIngredientHook.class);
+    oven.registerHook(hook);
+
+    oven.bake(
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}},{\"EmptyIngredient\":{}}]}}}");
+
+    verify(hook).bakeBatch(any(), any());
+    verify(hook, times(2)).bake(any(), any());
+  }
+
+  @Test
+  public void testBake_deserializedIngredientsCarryHookId() {
+    EmptyIngredientHook emptyHook = spy(EmptyIngredientHook.class);
+    IngredientWithRequiredHook requiredHook = spy(IngredientWithRequiredHook.class);
+    oven.registerHook(emptyHook);
+    oven.registerHook(requiredHook);
+
+    oven.bake(
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}},{\"IngredientWithRequired\":{}}]}}}");
+
+    ArgumentCaptor<EmptyIngredientData> empty = ArgumentCaptor.forClass(EmptyIngredientData.class);
+    ArgumentCaptor<IngredientWithRequiredData> required =
+        ArgumentCaptor.forClass(IngredientWithRequiredData.class);
+    verify(emptyHook).bake(empty.capture(), any());
+    verify(requiredHook).bake(required.capture(), any());
+    assertEquals(0, empty.getValue().getHookId());
+    assertEquals(1, required.getValue().getHookId());
+  }
+
+  @Test
+  public void testBake_dataThatReadsItsOwnPropertiesIsStreamed() {
+    StreamedIngredientHook hook = spy(StreamedIngredientHook.class);
+    oven.registerHook(hook);
+
+    oven.bake(
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"StreamedIngredient\":{\"count\":3,\"other\":[\"a\"],\"name\":null}}]}}}");
+
+    ArgumentCaptor<StreamedIngredientData> data =
+        ArgumentCaptor.forClass(StreamedIngredientData.class);
+    verify(hook).bake(data.capture(), any());
+    assertEquals(3, data.getValue().count);
+    assertEquals(Arrays.asList("a"), data.getValue().getProperty("other"));
+    assertTrue(data.getValue().hasProperty("name"));
+    assertEquals(0, data.getValue().getHookId());
+  }
+
+  @Test
+  public void testRegisterHook_replacesHookForSameIngredient() {
+    EmptyIngredientHook first = spy(EmptyIngredientHook.class);
+    EmptyIngredientHook second = spy(EmptyIngredientHook.class);
+    oven.registerHook(first);
+    oven.registerHook(second);
+
+    oven.bake("{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}}");
+
+    verify(first, never()).bake(any(), any());
+    verify(second).bake(any(), any());
+  }
+
+  @Test
+  public void testRegisterHook_hookRegisteredAfterBakeIsUsed() {
+    oven.registerHook(new EmptyIngredientHook());
+    oven.bake("{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}}]}}}");
+
+    IngredientWithRequiredHook hook = spy(IngredientWithRequiredHook.class);
+    oven.registerHook(hook);
+    oven.bake(
+        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyIngredient\":{}},{\"IngredientWithRequired\":{}}]}}}");
+
+    verify(hook).bake(any(), any());
+  }
+
+  @Test
+  public void testBake_concurrentBakesWhileRegistering() throws Exception {
+    oven.registerHook(new PublishingIngredientHook());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> cakes = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        cakes.add(
+            executor.submit(
+                () ->
+                    oven.bake(
+                        "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"PublishingIngredient\":{}}]}}}")));
+        if (i % 50 == 0) {
+          oven.registerHook(new EmptyIngredientHook());
+        }
+      }
+      for (Future<String> cake : cakes) {
+        assertEquals("{\"baked\":true}", cake.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public static class PublishingIngredientHook
+      extends BaseIngredientHook<PublishingIngredientData> {
+    public PublishingIngredientHook() {
+      super("PublishingIngredient", PublishingIngredientData.class);
+    }
+
+    @Override
+    public void bake(PublishingIngredientData ingredient, Cake cake) {
+      cake.publish("baked", true);
+    }
+  }
+
+  public static class PublishingIngredientData extends Ingredient {
+    public PublishingIngredientData() {
+      super("PublishingIngredient");
+    }
+  }
+
+  // changes a value it was sent in place, then publishes the same instance again
+  public static class AppendingIngredientHook extends BaseIngredientHook<AppendingIngredientData> {
+    public AppendingIngredientHook() {
+      super("AppendingIngredient", AppendingIngredientData.class);
+    }
+
+    @Override
+    public void bake(AppendingIngredientData ingredient, Cake cake) {
+      List<Object> items = cake.get("items");
+      items.add(2);
+      cake.publish("items", items);
+    }
+  }
+
+  public static class AppendingIngredientData extends Ingredient {
+    public AppendingIngredientData() {
+      super("AppendingIngredient");
+    }
+  }
+
+  // publishes from several threads at once, which only a concurrent cake supports
+  public static class ConcurrentPublishingIngredientHook
+      extends BaseIngredientHook<ConcurrentPublishingIngredientData> {
+    public ConcurrentPublishingIngredientHook() {
+      super("ConcurrentPublishingIngredient", ConcurrentPublishingIngredientData.class);
+    }
+
+    @Override
+    public void bake(ConcurrentPublishingIngredientData ingredient, Cake cake) {
+      ConcurrentCake concurrentCake = (ConcurrentCake) cake;
+      IntStream.range(0, 100).parallel().forEach(i -> concurrentCake.view().publish("" + i, i));
+    }
+  }
+
+  public static class ConcurrentPublishingIngredientData extends Ingredient {
+    public ConcurrentPublishingIngredientData() {
+      super("ConcurrentPublishingIngredient");
+    }
+  }
+
+  public static class ValueLookupHook extends BaseIngredientHook<ValueLookupIngredientData> {
+    private String foundKey;
+
+    public ValueLookupHook() {
+      super("ValueLookupIngredient", ValueLookupIngredientData.class);
+    }
+
+    @Override
+    public void bake(ValueLookupIngredientData ingredient, Cake cake) {
+      cake.publish("equal", new ArrayList<>());
+      Object value = new ArrayList<>();
+      cake.publish("key", value);
+      foundKey = cake.getPublishedKeyForValue(value, false);
+    }
+  }
+
+  public static class ValueLookupIngredientData extends Ingredient {
+    public ValueLookupIngredientData() {
+      super("ValueLookupIngredient");
+    }
+  }
+
   public static class EmptyIngredientHook extends BaseIngredientHook<EmptyIngredientData> {
     public EmptyIngredientHook() {
       super("EmptyIngredient", EmptyIngredientData.class);
@@ -116,4 +636,30 @@ public class BackendOvenTest {
       super("IngredientWithRequired");
     }
   }
+
+  public static class StreamedIngredientHook extends BaseIngredientHook<StreamedIngredientData> {
+    public StreamedIngredientHook() {
+      super("StreamedIngredient", StreamedIngredientData.class);
+    }
+
+    @Override
+    public void bake(StreamedIngredientData ingredient, Cake cake) {}
+  }
+
+  public static class StreamedIngredientData extends Ingredient {
+    private int count;
+
+    public StreamedIngredientData() {
+      super("StreamedIngredient");
+    }
+
+    @Override
+    protected boolean readProperty(String name, PropertyReader reader) throws IOException {
+      if ("count".equals(name)) {
+        count = reader.readInt();
+        return true;
+      }
+      return super.readProperty(name, reader);
+    }
+  }
 }
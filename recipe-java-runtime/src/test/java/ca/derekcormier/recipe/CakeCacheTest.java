@@ -0,0 +1,92 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CakeCacheTest {
+  private long now;
+  private CakeCache cache;
+
+  @Before
+  public void before() {
+    now = 0;
+    cache = new CakeCache(2, Duration.ofSeconds(10), () -> now);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_sizeNotPositive() {
+    new CakeCache(0, Duration.ofSeconds(10));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_timeToLiveNotPositive() {
+    new CakeCache(1, Duration.ZERO);
+  }
+
+  @Test
+  public void testGet_findsCopyOfCake() {
+    Cake cake = new Cake();
+    cake.publish("foo", "bar");
+    cache.put(recipe("A"), cake);
+    cake.publish("baz", "qux");
+
+    Cake cached = cache.get(recipe("A"));
+    cached.publish("changed", true);
+
+    assertNotSame(cake, cached);
+    assertEquals("bar", cached.get("foo"));
+    assertFalse(cached.find("baz").isPresent());
+    assertFalse(cache.get(recipe("A")).find("changed").isPresent());
+    assertNull(cache.get(recipe("B")));
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testPut_evictsLeastRecentlyUsed() {
+    cache.put(recipe("A"), new Cake());
+    cache.put(recipe("B"), new Cake());
+    cache.get(recipe("A"));
+    cache.put(recipe("C"), new Cake());
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertNull(cache.get(recipe("B")));
+    assertNotNull(cache.get(recipe("A")));
+    assertNotNull(cache.get(recipe("C")));
+  }
+
+  @Test
+  public void testGet_evictsExpiredCake() {
+    cache.put(recipe("A"), new Cake());
+    now = Duration.ofSeconds(9).toNanos();
+    cache.put(recipe("B"), new Cake());
+    now = Duration.ofSeconds(10).toNanos();
+
+    assertNull(cache.get(recipe("A")));
+    assertEquals(1, cache.getEvictions());
+    assertEquals(1, cache.size());
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testClear() {
+    cache.put(recipe("A"), new Cake());
+    cache.clear();
+
+    assertEquals(0, cache.size());
+    assertNull(cache.get(recipe("A")));
+  }
+
+  private static Recipe recipe(String domain) {
+    return Recipe.prepare(new Ingredient("TestIngredient", domain) {});
+  }
+}
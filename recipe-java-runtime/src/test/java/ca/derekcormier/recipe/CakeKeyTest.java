@@ -0,0 +1,96 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class CakeKeyTest {
+  @Test
+  public void testParse_joinsSubkeys() {
+    CakeKey key = CakeKey.parse("a.b.c");
+
+    assertEquals("a.b.c", key.toString());
+    assertEquals("c", key.getLastSubKey());
+    assertEquals("a.b", key.getParent().toString());
+  }
+
+  @Test
+  public void testParse_internsKeys() {
+    assertSame(CakeKey.parse("a.b"), CakeKey.parse("a.b"));
+    assertSame(CakeKey.parse("a.b"), CakeKey.parse("a").child("b"));
+  }
+
+  @Test
+  public void testParse_ignoresEmptySubkeys() {
+    assertSame(CakeKey.parse("a.b"), CakeKey.parse(".a..b."));
+  }
+
+  @Test
+  public void testParse_emptyStringIsRoot() {
+    assertTrue(CakeKey.parse("").isRoot());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_throwsOnNull() {
+    CakeKey.parse(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_throwsOnBlankSubkey() {
+    CakeKey.parse("a. .b");
+  }
+
+  @Test
+  public void testResolve_qualifiesKey() {
+    assertSame(CakeKey.parse("a.b.c.d"), CakeKey.parse("a.b").resolve(CakeKey.parse("c.d")));
+  }
+
+  @Test
+  public void testResolve_rootIsIdentity() {
+    CakeKey key = CakeKey.parse("a.b");
+
+    assertSame(key, CakeKey.ROOT.resolve(key));
+    assertSame(key, key.resolve(CakeKey.ROOT));
+  }
+
+  @Test
+  public void testGetParent_rootHasNoParent() {
+    assertNull(CakeKey.ROOT.getParent());
+    assertSame(CakeKey.ROOT, CakeKey.parse("a").getParent());
+  }
+
+  @Test
+  public void testParse_countsKeysInternedConcurrentlyOnce() throws Exception {
+    String prefix = "concurrent" + System.nanoTime();
+    int before = CakeKey.getInternedCount();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 100; i++) {
+                    CakeKey.parse(prefix + "." + i);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // the prefix, and each key both as a child of it and as a parsed string
+    assertEquals(before + 1 + 2 * 100, CakeKey.getInternedCount());
+  }
+}
@@ -3,7 +3,11 @@ package ca.derekcormier.recipe;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -26,6 +30,20 @@ public class CakeTest {
     assertEquals(123, (int) copy.get("json"));
   }
 
+  @Test
+  public void testCopyConstructor_copiesAreIndependent() {
+    Cake cake = new Cake();
+    cake.publish("foo", "bar");
+
+    Cake copy = new Cake(cake);
+    copy.publish("foo", "baz");
+    cake.publish("other", 1);
+
+    assertEquals("bar", cake.get("foo"));
+    assertEquals("baz", copy.get("foo"));
+    assertFalse(copy.getEntries().containsKey("other"));
+  }
+
   @Test(expected = RuntimeException.class)
   public void testGet_throwsOnMissingKey() {
     cake.get("foo");
@@ -256,6 +274,62 @@ public class CakeTest {
     cake.get("key");
   }
 
+  @Test
+  public void testGet_findsPartialKeyOfMultipleSubkeys() {
+    cake.publish("a.b.key", "foo");
+    cake.publish("a.c.key", "bar");
+
+    assertEquals("foo", cake.get("b", "key"));
+    assertEquals("bar", cake.get("c.key"));
+  }
+
+  @Test
+  public void testGet_findsPartialKeyPublishedAfterPreviousLookup() {
+    cake.publish("a.key", "foo");
+    assertEquals("foo", cake.get("key"));
+
+    cake.publish("b.other", "bar");
+
+    assertEquals("bar", cake.get("other"));
+  }
+
+  @Test
+  public void testGet_partialKeyBecomesAmbiguousAfterPreviousLookup() {
+    cake.publish("a.key", "foo");
+    assertEquals("foo", cake.get("key"));
+
+    cake.publish("b.key", "bar");
+
+    try {
+      cake.get("key");
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("cannot retrieve ambiguous key 'key'"));
+    }
+  }
+
+  @Test
+  public void testGet_republishingKeyDoesNotMakeItAmbiguous() {
+    cake.publish("a.key", "foo");
+    assertEquals("foo", cake.get("key"));
+
+    cake.publish("a.key", "bar");
+
+    assertEquals("bar", cake.get("key"));
+  }
+
+  @Test
+  public void testGet_partialKeyNotFoundWhenLongerThanKeys() {
+    cake.publish("a.key", "foo");
+
+    try {
+      cake.get("b", "a", "key");
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("cake does not contain key 'b.a.key"));
+    }
+  }
+
   @Test(expected = RuntimeException.class)
   public void testGetPublishedKeyForValue_throwsOnNonExistentValue() {
     cake.getPublishedKeyForValue("foo", false);
@@ -304,6 +378,103 @@ public class CakeTest {
     assertEquals("foo", cake.getPublishedKeyForValue("5", false));
   }
 
+  @Test
+  public void testGetPublishedKeyForValue_identityIndexFindsPublishedInstance() {
+    Cake cake = new Cake(Cake.ValueIndex.IDENTITY);
+    List<String> value = new ArrayList<>(Arrays.asList("a"));
+    cake.publish("foo", new ArrayList<>(value));
+    cake.publish("bar", value);
+
+    assertEquals("bar", cake.getPublishedKeyForValue(value, false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPublishedKeyForValue_identityIndexIgnoresEqualInstances() {
+    Cake cake = new Cake(Cake.ValueIndex.IDENTITY);
+    cake.publish("foo", new ArrayList<>(Arrays.asList("a")));
+
+    cake.getPublishedKeyForValue(new ArrayList<>(Arrays.asList("a")), false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPublishedKeyForValue_equalIngredientsAreSameValue() {
+    Cake cake = new Cake();
+    cake.publish("foo", new TestIngredient());
+    cake.publish("bar", new TestIngredient());
+
+    cake.getPublishedKeyForValue(cake.get("bar"), false);
+  }
+
+  @Test
+  public void testGetPublishedKeyForValue_equalityIndexFindsEqualValue() {
+    Cake cake = new Cake(Cake.ValueIndex.EQUALITY);
+    cake.inNamespace(
+        "a",
+        () -> {
+          cake.publish("key", new ArrayList<>(Arrays.asList("a")));
+        });
+
+    assertEquals(
+        Cake.key("a", "key"),
+        cake.getPublishedKeyForValue(new ArrayList<>(Arrays.asList("a")), true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPublishedKeyForValue_equalityIndexThrowsOnAmbiguousKey() {
+    Cake cake = new Cake(Cake.ValueIndex.EQUALITY);
+    cake.publish("foo", "value");
+    cake.publish("bar", "value");
+
+    cake.getPublishedKeyForValue("value", false);
+  }
+
+  @Test
+  public void testGetPublishedKeyForValue_indexUpdatedOnRepublish() {
+    Cake cake = new Cake(Cake.ValueIndex.EQUALITY);
+    cake.publish("foo", "old");
+    assertEquals("foo", cake.getPublishedKeyForValue("old", false));
+
+    cake.publish("foo", "new");
+    cake.publish("bar", "old");
+
+    assertEquals("foo", cake.getPublishedKeyForValue("new", false));
+    assertEquals("bar", cake.getPublishedKeyForValue("old", false));
+  }
+
+  @Test
+  public void testGetPublishedKeyForValue_indexIgnoresStaleValues() {
+    Cake cake = new Cake(Cake.ValueIndex.EQUALITY);
+    List<String> value = new ArrayList<>(Arrays.asList("a"));
+    cake.publish("foo", value);
+    cake.getPublishedKeyForValue(value, false);
+
+    // changing the value changes its hash code, so republishing can't unindex it
+    value.add("b");
+    cake.publish("foo", "other");
+
+    try {
+      cake.getPublishedKeyForValue(Arrays.asList("a"), false);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("no key found for object [a]", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCopyConstructor_keepsValueIndex() {
+    Cake cake = new Cake(Cake.ValueIndex.IDENTITY);
+    cake.publish("foo", new ArrayList<>());
+
+    Cake copy = new Cake(cake);
+
+    try {
+      copy.getPublishedKeyForValue(new ArrayList<>(), false);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("no key found for object []", e.getMessage());
+    }
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testGetContext_throwsInRootNamespace() {
     cake.getContext();
@@ -417,4 +588,66 @@ public class CakeTest {
               });
         });
   }
+
+  @Test
+  public void testGetOrGetContext_fallsBackToContextOnAmbiguousKey() {
+    cake.publish("a.key", "1");
+    cake.publish("b.key", "2");
+    cake.publish("c", "context");
+    cake.inNamespace("c", () -> assertEquals("context", cake.getOrGetContext("key")));
+  }
+
+  @Test
+  public void testGetOrGetContext_typedFallsBackToContextOnWrongType() {
+    cake.publish("foo", 1);
+    cake.inNamespace(
+        "foo",
+        () -> {
+          cake.publish("moo", "cow");
+          assertEquals(1, (int) cake.getOrGetContext(Integer.class, "moo"));
+          assertEquals("cow", cake.getOrGetContext(String.class, "moo"));
+        });
+  }
+
+  @Test
+  public void testFind_returnsValue() {
+    cake.publish("a.b", "value");
+    assertEquals("value", cake.find("a", "b").get());
+    assertEquals("value", cake.find(String.class, "b").get());
+  }
+
+  @Test
+  public void testFind_returnsEmptyOnMissingOrAmbiguousKey() {
+    cake.publish("a.key", "1");
+    cake.publish("b.key", "2");
+    assertFalse(cake.find("foo").isPresent());
+    assertFalse(cake.find("key").isPresent());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFind_throwsOnEmptyKey() {
+    cake.find();
+  }
+
+  @Test
+  public void testFindContext_returnsEmptyInRootNamespace() {
+    assertFalse(cake.findContext().isPresent());
+  }
+
+  @Test
+  public void testFindContext_returnsValueForNamespaceKey() {
+    cake.publish("foo", "bar");
+    cake.inNamespace(
+        "foo",
+        () -> {
+          assertEquals("bar", cake.findContext(String.class).get());
+          cake.inNamespace("baz", () -> assertFalse(cake.findContext().isPresent()));
+        });
+  }
+
+  private static class TestIngredient extends Ingredient {
+    TestIngredient() {
+      super("TestIngredient");
+    }
+  }
 }
@@ -0,0 +1,162 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentCakeTest {
+  private ConcurrentCake cake;
+
+  @Before
+  public void before() {
+    cake = new ConcurrentCake();
+  }
+
+  @Test
+  public void testView_sharesEntries() {
+    ConcurrentCake view = cake.view();
+    view.publish("foo", "bar");
+    cake.publish("baz", 1);
+
+    assertEquals("bar", cake.get("foo"));
+    assertEquals(1, (int) view.get("baz"));
+  }
+
+  @Test
+  public void testView_startsInCurrentNamespace() {
+    cake.inNamespace(
+        "a",
+        () -> {
+          ConcurrentCake view = cake.view();
+          view.publish("key", "value");
+          assertEquals("a", view.getNamespace());
+        });
+
+    assertEquals("value", cake.get("a.key"));
+  }
+
+  @Test
+  public void testView_namespaceIsIndependent() {
+    ConcurrentCake view = cake.view();
+    view.inNamespace(
+        "a",
+        () -> {
+          assertEquals("", cake.getNamespace());
+          cake.publish("key", "root");
+          view.publish("key", "a");
+        });
+
+    assertEquals("root", cake.get("key"));
+    assertEquals("a", cake.get("a", "key"));
+  }
+
+  @Test
+  public void testPublish_fromManyThreads() throws Exception {
+    int threads = 4;
+    int keysPerThread = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        ConcurrentCake view = cake.view();
+        String namespace = "t" + t;
+        futures.add(
+            executor.submit(
+                () ->
+                    view.inNamespace(
+                        namespace,
+                        () -> {
+                          for (int i = 0; i < keysPerThread; i++) {
+                            view.publish("key" + i, i);
+                            assertEquals(i, (int) view.get("key" + i));
+                          }
+                        })));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(threads * keysPerThread, cake.getEntries().size());
+    for (int t = 0; t < threads; t++) {
+      assertEquals(keysPerThread - 1, (int) cake.get("t" + t, "key" + (keysPerThread - 1)));
+    }
+  }
+
+  @Test
+  public void testGet_findsPartialKeyPublishedByView() {
+    // builds the suffix index before the view publishes
+    assertFalse(cake.find("key").isPresent());
+    ConcurrentCake view = cake.view();
+    view.publish("a.key", "value");
+
+    assertEquals("value", cake.get("key"));
+  }
+
+  @Test
+  public void testGetPublishedKeyForValue_withIndex() {
+    ConcurrentCake cake = new ConcurrentCake(Cake.ValueIndex.IDENTITY);
+    Object value = new Object();
+    cake.view().publish("a.key", value);
+
+    assertEquals("a.key", cake.getPublishedKeyForValue(value, true));
+  }
+
+  @Test
+  public void testCopyConstructor_copiesSnapshot() {
+    cake.publish("foo", "bar");
+    Cake copy = new Cake(cake);
+    cake.publish("baz", 1);
+
+    assertFalse(copy instanceof ConcurrentCake);
+    assertEquals("bar", copy.get("foo"));
+    assertFalse(copy.find("baz").isPresent());
+  }
+
+  @Test
+  public void testFork_copiesEntriesIntoSynchronizedEntries() {
+    cake.publish("foo", "bar");
+    ConcurrentCake fork = cake.fork();
+    fork.publish("baz", 1);
+
+    assertTrue(fork.getCakeEntries() instanceof CakeEntries.Synchronized);
+    assertEquals("bar", fork.get("foo"));
+    assertEquals(1, (int) fork.get("baz"));
+    assertFalse(cake.find("baz").isPresent());
+  }
+
+  @Test
+  public void testSerialize() throws Exception {
+    cake.publish("foo", "bar");
+    ObjectMapper objectMapper = new ObjectMapper();
+    String json = objectMapper.writeValueAsString(cake);
+
+    assertEquals("{\"foo\":\"bar\"}", json);
+    assertEquals("bar", objectMapper.readValue(json, ConcurrentCake.class).get("foo"));
+  }
+
+  @Test
+  public void testCreateCake_createsConcurrentCakeWhenEnabled() {
+    BackendOven oven = new BackendOven();
+    assertFalse(oven.createCake() instanceof ConcurrentCake);
+
+    oven.setConcurrentCakes(true);
+    Cake other = new Cake();
+    other.publish("foo", "bar");
+    Cake cake = oven.createCake(other);
+
+    assertTrue(cake instanceof ConcurrentCake);
+    assertEquals("bar", cake.get("foo"));
+  }
+}
@@ -1,9 +1,13 @@
 package ca.derekcormier.recipe;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.Test;
 
 public class DirectDispatchOvenTest {
@@ -18,6 +22,22 @@ public class DirectDispatchOvenTest {
     verify(backendOven).bake(anyString());
   }
 
+  @Test
+  public void testBakeAll_dispatchesOnceToBackendOven() {
+    BackendOven backendOven = spy(BackendOven.class);
+    backendOven.registerHook(new FooIngredientHook());
+    Oven oven = new DirectDispatchOven(backendOven);
+
+    List<Cake> cakes =
+        oven.bakeAll(
+            Arrays.asList(
+                Recipe.prepare(new Ingredient("FooIngredient", "FooDomain") {}),
+                Recipe.prepare(new Ingredient("FooIngredient", "FooDomain") {})));
+
+    verify(backendOven).bake(anyString());
+    assertEquals(2, cakes.size());
+  }
+
   @Test(expected = UnsupportedOperationException.class)
   public void testAddDispatcher_throws() {
     Oven oven = new DirectDispatchOven(new BackendOven());
@@ -31,6 +51,20 @@ public class DirectDispatchOvenTest {
 
     oven.setDefaultDispatcher(payload -> "{}");
   }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAddAsyncDispatcher_throws() {
+    Oven oven = new DirectDispatchOven(new BackendOven());
+
+    oven.addAsyncDispatcher("FooDomain", payload -> CompletableFuture.completedFuture("{}"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSetDefaultAsyncDispatcher_throws() {
+    Oven oven = new DirectDispatchOven(new BackendOven());
+
+    oven.setDefaultAsyncDispatcher(payload -> CompletableFuture.completedFuture("{}"));
+  }
 }
 
 class FooIngredientData extends Ingredient {
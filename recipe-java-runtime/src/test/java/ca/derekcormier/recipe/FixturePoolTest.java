@@ -0,0 +1,183 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class FixturePoolTest {
+  private Oven oven;
+  private Dispatcher dispatcher;
+
+  @Before
+  public void before() {
+    oven = new Oven();
+    dispatcher = Mockito.spy(Dispatcher.class);
+    when(dispatcher.dispatch(anyString())).thenReturn("{\"customer\":\"foo\"}");
+    oven.addDispatcher("A", dispatcher);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_depthNotPositive() {
+    new FixturePool(oven, recipe(), 0);
+  }
+
+  @Test
+  public void testConstructor_bakesToDepth() {
+    new FixturePool(oven, this::recipe, 3, Runnable::run);
+
+    verify(dispatcher, times(3)).dispatch(anyString());
+  }
+
+  @Test
+  public void testTake_handsOutBakedCakeAndRefills() {
+    FixturePool pool = new FixturePool(oven, this::recipe, 2, Runnable::run);
+
+    Cake first = pool.take();
+    Cake second = pool.take();
+
+    assertEquals("foo", first.get("customer"));
+    assertNotSame(first, second);
+    verify(dispatcher, times(4)).dispatch(anyString());
+    assertEquals(2, pool.getHits());
+    assertEquals(0, pool.getMisses());
+    assertEquals(1.0, pool.getHitRate(), 0);
+  }
+
+  @Test
+  public void testTake_waitsForCakeNotYetBaked() {
+    List<Runnable> tasks = new CopyOnWriteArrayList<>();
+    Executor executor = tasks::add;
+    FixturePool pool = new FixturePool(oven, this::recipe, 1, executor);
+
+    CompletableFuture<Cake> taken = CompletableFuture.supplyAsync(pool::take);
+    while (tasks.size() < 2) {
+      Thread.yield();
+    }
+    tasks.get(0).run();
+
+    assertEquals("foo", taken.join().get("customer"));
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(0.0, pool.getHitRate(), 0);
+  }
+
+  @Test
+  public void testTake_preparesRecipeForEachBake() {
+    AtomicInteger prepared = new AtomicInteger();
+    FixturePool pool =
+        new FixturePool(
+            oven,
+            () -> {
+              prepared.incrementAndGet();
+              return recipe();
+            },
+            2,
+            Runnable::run);
+
+    pool.take();
+
+    assertEquals(3, prepared.get());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testTake_throwsIfBakeFailed() {
+    when(dispatcher.dispatch(anyString())).thenThrow(new RuntimeException());
+    FixturePool pool = new FixturePool(oven, this::recipe, 1, Runnable::run);
+
+    pool.take();
+  }
+
+  @Test
+  public void testTake_bakesPastCakeCache() {
+    CakeCache cache = new CakeCache(10, Duration.ofMinutes(1));
+    oven.setCakeCache(cache);
+    FixturePool pool =
+        new FixturePool(
+            oven,
+            () ->
+                Recipe.prepare(
+                    new Ingredient("Customer", "A") {
+                      @Override
+                      protected boolean isIdempotent() {
+                        return true;
+                      }
+                    }),
+            2,
+            Runnable::run);
+
+    pool.take();
+    pool.take();
+
+    verify(dispatcher, times(4)).dispatch(anyString());
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHits() + cache.getMisses());
+  }
+
+  @Test
+  public void testTake_bakesAgainInsteadOfHandingOutFailedBake() {
+    when(dispatcher.dispatch(anyString()))
+        .thenThrow(new RuntimeException())
+        .thenReturn("{\"customer\":\"foo\"}");
+    FixturePool pool = new FixturePool(oven, this::recipe, 1, Runnable::run);
+
+    assertEquals("foo", pool.take().get("customer"));
+  }
+
+  @Test
+  public void testTake_wrapsFailureThatIsNotRuntimeException() {
+    Error error = new AssertionError();
+    FixturePool pool =
+        new FixturePool(
+            oven,
+            () -> {
+              throw error;
+            },
+            1,
+            Runnable::run);
+
+    try {
+      pool.take();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertSame(error, e.getCause());
+    }
+    assertEquals(0, pool.getHits());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testTake_closed() {
+    FixturePool pool = new FixturePool(oven, this::recipe, 1, Runnable::run);
+    pool.close();
+
+    pool.take();
+  }
+
+  @Test
+  public void testGetAverageRefillTime() {
+    FixturePool pool = new FixturePool(oven, this::recipe, 1, Runnable::run);
+
+    pool.take();
+
+    assertFalse(pool.getAverageRefillTime().isNegative());
+  }
+
+  private Recipe recipe() {
+    return Recipe.prepare(new Ingredient("Customer", "A") {});
+  }
+}
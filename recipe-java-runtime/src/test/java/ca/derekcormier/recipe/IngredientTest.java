@@ -3,9 +3,14 @@ package ca.derekcormier.recipe;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
 
 public class IngredientTest {
@@ -112,6 +117,64 @@ public class IngredientTest {
     ingredient.setCompoundOptional("optional", false, "a", 1, 2, "foo");
   }
 
+  @Test
+  public void testCopy_laterPropertiesDoNotChangeOriginal() {
+    TestIngredient original = new TestIngredient();
+    original.setProperty("foo", 1);
+    TestIngredient copy = new TestIngredient(original);
+    copy.setProperty("foo", 2);
+    copy.setProperty("bar", 3);
+
+    assertEquals(1, (int) original.getProperty("foo"));
+    assertFalse(original.hasProperty("bar"));
+    assertEquals(2, (int) copy.getProperty("foo"));
+  }
+
+  @Test
+  public void testSetOptional_repeatableDoesNotChangeEarlierCopies() {
+    TestIngredient first = new TestIngredient();
+    first.setOptional("foo", true, "a");
+    TestIngredient second = new TestIngredient(first);
+    second.setOptional("foo", true, "b");
+    TestIngredient third = new TestIngredient(first);
+    third.setOptional("foo", true, "c");
+
+    assertEquals(Arrays.asList("a"), first.getProperty("foo"));
+    assertEquals(Arrays.asList("a", "b"), second.getProperty("foo"));
+    assertEquals(Arrays.asList("a", "c"), third.getProperty("foo"));
+  }
+
+  @Test
+  public void testSetOptional_repeatableAppendsToDeserializedList() {
+    TestIngredient ingredient = new TestIngredient();
+    ingredient.setProperty("foo", new ArrayList<>(Arrays.asList("a")));
+    ingredient.setOptional("foo", true, "b");
+
+    assertEquals(Arrays.asList("a", "b"), ingredient.getProperty("foo"));
+  }
+
+  @Test
+  public void testSetCompoundOptional_doesNotChangeEarlierCopies() {
+    TestIngredient first = new TestIngredient();
+    first.setCompoundOptional("foo", false, "a", 1);
+    TestIngredient second = new TestIngredient(first);
+    second.setCompoundOptional("foo", false, "a", 2);
+
+    assertEquals(Collections.singletonMap("a", 1), first.getProperty("foo"));
+    assertEquals(Collections.singletonMap("a", 2), second.getProperty("foo"));
+  }
+
+  @Test
+  public void testSetCompoundOptional_repeatableDoesNotChangeEarlierCopies() {
+    TestIngredient first = new TestIngredient();
+    first.setCompoundOptional("foo", true, "a", 1);
+    TestIngredient second = new TestIngredient(first);
+    second.setCompoundOptional("foo", true, "a", 2);
+
+    assertEquals(1, ((List<?>) first.getProperty("foo")).size());
+    assertEquals(2, ((List<?>) second.getProperty("foo")).size());
+  }
+
   public enum TestEnum {
     A,
     B,
@@ -119,4 +182,74 @@ public class IngredientTest {
   }
 
   public class SomeClass {}
+
+  @Test
+  public void testEquals_sameTypeDomainAndProperties() {
+    TestIngredient ingredient1 = new TestIngredient();
+    ingredient1.setRequired("name", "foo");
+    ingredient1.setOptional("tags", true, new String[] {"a", "b"});
+    TestIngredient ingredient2 = new TestIngredient();
+    ingredient2.setRequired("name", "foo");
+    ingredient2.setOptional("tags", true, new String[] {"a", "b"});
+
+    assertEquals(ingredient1, ingredient2);
+    assertEquals(ingredient1.hashCode(), ingredient2.hashCode());
+  }
+
+  @Test
+  public void testEquals_differentProperties() {
+    TestIngredient ingredient1 = new TestIngredient();
+    ingredient1.setCompoundOptional("compound", false, "a", 1);
+    TestIngredient ingredient2 = new TestIngredient();
+    ingredient2.setCompoundOptional("compound", false, "a", 2);
+
+    assertNotEquals(ingredient1, ingredient2);
+    assertNotEquals(ingredient1, new TestIngredient());
+  }
+
+  @Test
+  public void testEquals_repeatableOrderMatters() {
+    TestIngredient ingredient1 = new TestIngredient();
+    ingredient1.setOptional("tag", true, "a");
+    ingredient1.setOptional("tag", true, "b");
+    TestIngredient ingredient2 = new TestIngredient();
+    ingredient2.setOptional("tag", true, "b");
+    ingredient2.setOptional("tag", true, "a");
+
+    assertNotEquals(ingredient1, ingredient2);
+  }
+
+  @Test
+  public void testEquals_differentClassOrDomain() {
+    assertNotEquals(new TestIngredient(), new Ingredient("TestIngredient", "A") {});
+    assertNotEquals(
+        new Ingredient("TestIngredient", "A") {}, new Ingredient("TestIngredient", "B") {});
+  }
+
+  @Test
+  public void testEquals_keyedIngredientsComparesKey() {
+    KeyedIngredient ingredient1 = new TestKeyedIngredient().keyed("a");
+    KeyedIngredient ingredient2 = new TestKeyedIngredient().keyed("a");
+    KeyedIngredient ingredient3 = new TestKeyedIngredient().keyed("b");
+
+    assertEquals(ingredient1, ingredient2);
+    assertEquals(ingredient1.hashCode(), ingredient2.hashCode());
+    assertNotEquals(ingredient1, ingredient3);
+  }
+
+  private static class TestKeyedIngredient extends KeyedIngredient {
+    TestKeyedIngredient() {
+      super("TestKeyedIngredient", "A");
+    }
+  }
+
+  private static class TestIngredient extends Ingredient {
+    TestIngredient() {
+      super("TestIngredient", "A");
+    }
+
+    TestIngredient(TestIngredient other) {
+      super(other);
+    }
+  }
 }
@@ -1,11 +1,32 @@
 package ca.derekcormier.recipe;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -189,6 +210,28 @@ public class OvenTest {
     orderVerifier.verify(spyB).dispatch(anyString());
   }
 
+  @Test
+  public void testBake_recipeCannotBeChangedAfterBaking() {
+    Dispatcher spyA = setupDispatcherSpy("A");
+    Dispatcher spyB = setupDispatcherSpy("B");
+    Recipe recipe = Recipe.prepare(new Ingredient("Catalogue", "A") {});
+
+    oven.bake(recipe);
+    try {
+      recipe.getIngredients().add(new Ingredient("Products", "A") {});
+      fail("expected exception");
+    } catch (UnsupportedOperationException e) {
+      // recipes are immutable once prepared
+    }
+    oven.bake(
+        Recipe.prepare(
+            recipe, new Ingredient("Products", "A") {}, new Ingredient("Other", "B") {}));
+
+    verify(spyA).dispatch(payloadJson("{\"Catalogue\":{}}"));
+    verify(spyA).dispatch(payloadJson("{\"Catalogue\":{}}", "{\"Products\":{}}"));
+    verify(spyB).dispatch(payloadJson("{\"Other\":{}}"));
+  }
+
   @Test
   public void testBake_propagatesCakeToSubsequentDispatches() {
     Dispatcher spyA = setupDispatcherSpy("A", "{\"foo\":\"bar\"}");
@@ -345,6 +388,638 @@ public class OvenTest {
             "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"EmptyKeyedIngredient\":{}}]}},\"cake\":{}}");
   }
 
+  @Test
+  public void testBake_serializesNewIngredientsOnRepeatedBakes() {
+    Dispatcher spy = setupDispatcherSpy("A");
+
+    oven.bake(Recipe.prepare(new Ingredient("FirstIngredient", "A") {}));
+    oven.bake(Recipe.prepare(new Ingredient("SecondIngredient", "A") {}));
+
+    verify(spy).dispatch(payloadJson("{\"FirstIngredient\":{}}"));
+    verify(spy).dispatch(payloadJson("{\"SecondIngredient\":{}}"));
+  }
+
+  @Test
+  public void testBake_sharesSerializationContextBetweenOvens() {
+    SerializationContext context = new SerializationContext();
+    Oven oven1 = new Oven(context);
+    Oven oven2 = new Oven(context);
+    Dispatcher spy = Mockito.spy(Dispatcher.class);
+    when(spy.dispatch(anyString())).thenReturn("{}");
+    oven1.addDispatcher("A", spy);
+    oven2.addDispatcher("A", spy);
+
+    oven1.bake(Recipe.prepare(new Ingredient("FirstIngredient", "A") {}));
+    oven2.bake(Recipe.prepare(new Ingredient("SecondIngredient", "A") {}));
+
+    verify(spy).dispatch(payloadJson("{\"FirstIngredient\":{}}"));
+    verify(spy).dispatch(payloadJson("{\"SecondIngredient\":{}}"));
+  }
+
+  @Test
+  public void testBakeAsync_completesWithCakeFromSyncDispatcher() {
+    setupDispatcherSpy("A", "{\"foo\":\"bar\"}");
+
+    Cake cake = oven.bakeAsync(Recipe.prepare(new Ingredient("TestIngredient", "A") {})).join();
+
+    assertEquals("bar", cake.get("foo"));
+  }
+
+  @Test
+  public void testBakeAsync_dispatchesNextSegmentWhenPreviousCompletes() {
+    CompletableFuture<String> responseA = new CompletableFuture<>();
+    AsyncDispatcher dispatcherA = Mockito.mock(AsyncDispatcher.class);
+    when(dispatcherA.dispatch(anyString())).thenReturn(responseA);
+    AsyncDispatcher dispatcherB = Mockito.mock(AsyncDispatcher.class);
+    when(dispatcherB.dispatch(anyString()))
+        .thenReturn(CompletableFuture.completedFuture("{\"foo\":\"baz\"}"));
+    oven.addAsyncDispatcher("A", dispatcherA);
+    oven.addAsyncDispatcher("B", dispatcherB);
+
+    CompletableFuture<Cake> future =
+        oven.bakeAsync(
+            Recipe.prepare(
+                new Ingredient("TestIngredient1", "A") {},
+                new Ingredient("TestIngredient2", "B") {}));
+
+    assertFalse(future.isDone());
+    verify(dispatcherB, never()).dispatch(anyString());
+
+    responseA.complete("{\"foo\":\"bar\"}");
+
+    assertEquals("baz", future.join().get("foo"));
+    verify(dispatcherB)
+        .dispatch(payloadJsonWithCake("{\"foo\":\"bar\"}", "{\"TestIngredient2\":{}}"));
+  }
+
+  @Test
+  public void testBakeAsync_completesExceptionallyOnFailedDispatch() {
+    oven.addAsyncDispatcher(
+        "A", payload -> CompletableFuture.failedFuture(new IllegalStateException("offline")));
+
+    CompletableFuture<Cake> future =
+        oven.bakeAsync(Recipe.prepare(new Ingredient("TestIngredient", "A") {}));
+
+    try {
+      future.join();
+      fail();
+    } catch (CompletionException e) {
+      assertEquals("could not bake cake", e.getCause().getMessage());
+      assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testBakeAsync_completesExceptionallyOnNoDispatcherForIngredient() {
+    CompletableFuture<Cake> future =
+        oven.bakeAsync(Recipe.prepare(new Ingredient("TestIngredient", "A") {}));
+
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testAddAsyncDispatcher_alreadyExistsForDomain() {
+    oven.addDispatcher("FooDomain", payload -> "{}");
+    oven.addAsyncDispatcher("FooDomain", payload -> CompletableFuture.completedFuture("{}"));
+  }
+
+  @Test
+  public void testSetDefaultAsyncDispatcher_calledIfNoDomainDispatchers() {
+    AsyncDispatcher defaultDispatcher = Mockito.mock(AsyncDispatcher.class);
+    when(defaultDispatcher.dispatch(anyString()))
+        .thenReturn(CompletableFuture.completedFuture("{}"));
+    oven.setDefaultAsyncDispatcher(defaultDispatcher);
+
+    oven.bake(Recipe.prepare(new Ingredient("FooIngredient", "FooDomain") {}));
+
+    verify(defaultDispatcher).dispatch(anyString());
+  }
+
+  @Test
+  public void testAddStreamDispatcher_writesPayloadAndReadsCakeFromStreams() {
+    ByteArrayOutputStream request = new ByteArrayOutputStream();
+    oven.addStreamDispatcher(
+        "A",
+        payload -> {
+          payload.writeTo(request);
+          return new ByteArrayInputStream("{\"foo\":\"bar\"}".getBytes(StandardCharsets.UTF_8));
+        });
+
+    Cake cake = oven.bake(Recipe.prepare(new Ingredient("TestIngredient", "A") {}));
+
+    assertEquals(
+        payloadJson("{\"TestIngredient\":{}}"),
+        new String(request.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals("bar", cake.get("foo"));
+  }
+
+  @Test
+  public void testAddStreamDispatcher_bakeFailsOnDispatchError() {
+    oven.addStreamDispatcher(
+        "A",
+        payload -> {
+          throw new IOException("connection reset");
+        });
+
+    try {
+      oven.bake(Recipe.prepare(new Ingredient("TestIngredient", "A") {}));
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals("could not bake cake", e.getMessage());
+      assertTrue(e.getCause() instanceof UncheckedIOException);
+    }
+  }
+
+  @Test
+  public void testAddStreamDispatcher_encodesWithDispatcherCodec() {
+    BackendOven backendOven = new BackendOven();
+    backendOven.registerHook(new BackendOvenTest.PublishingIngredientHook());
+    oven.addStreamDispatcher(
+        "A",
+        StreamDispatcher.withCodec(
+            PayloadCodec.SMILE,
+            payload -> {
+              assertEquals("application/x-jackson-smile", payload.getContentType());
+              ByteArrayOutputStream request = new ByteArrayOutputStream();
+              payload.writeTo(request);
+              ByteArrayOutputStream response = new ByteArrayOutputStream();
+              backendOven.bake(
+                  new ByteArrayInputStream(request.toByteArray()),
+                  response,
+                  PayloadCodec.forContentType(payload.getContentType()));
+              return new ByteArrayInputStream(response.toByteArray());
+            }));
+
+    Cake cake = oven.bake(Recipe.prepare(new Ingredient("PublishingIngredient", "A") {}));
+
+    assertEquals(true, cake.get("baked"));
+  }
+
+  @Test
+  public void testAddStreamDispatcher_defaultsToJson() {
+    oven.addStreamDispatcher(
+        "A",
+        payload -> {
+          assertEquals("application/json", payload.getContentType());
+          return new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8));
+        });
+
+    oven.bake(Recipe.prepare(new Ingredient("TestIngredient", "A") {}));
+  }
+
+  @Test
+  public void testSetDefaultStreamDispatcher_calledIfNoDomainDispatchers() throws Exception {
+    StreamDispatcher defaultDispatcher = Mockito.mock(StreamDispatcher.class);
+    when(defaultDispatcher.getCodec()).thenReturn(PayloadCodec.JSON);
+    when(defaultDispatcher.dispatch(any()))
+        .thenReturn(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)));
+    oven.setDefaultStreamDispatcher(defaultDispatcher);
+
+    oven.bake(Recipe.prepare(new Ingredient("FooIngredient", "FooDomain") {}));
+
+    verify(defaultDispatcher).dispatch(any());
+  }
+
+  @Test
+  public void testBakeAll_streamsBatchPayload() {
+    ByteArrayOutputStream request = new ByteArrayOutputStream();
+    oven.addStreamDispatcher(
+        "A",
+        payload -> {
+          payload.writeTo(request);
+          return new ByteArrayInputStream("[{\"a\":1},{\"a\":2}]".getBytes(StandardCharsets.UTF_8));
+        });
+
+    List<Cake> cakes =
+        oven.bakeAll(
+            Arrays.asList(
+                Recipe.prepare(new Ingredient("TestIngredient1", "A") {}),
+                Recipe.prepare(new Ingredient("TestIngredient2", "A") {})));
+
+    assertEquals(
+        "["
+            + payloadJson("{\"TestIngredient1\":{}}")
+            + ","
+            + payloadJson("{\"TestIngredient2\":{}}")
+            + "]",
+        new String(request.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(1, (int) cakes.get(0).get("a"));
+    assertEquals(2, (int) cakes.get(1).get("a"));
+  }
+
+  @Test
+  public void testDeclareIndependent_dispatchesIndependentSegmentsTogether() {
+    CompletableFuture<String> responseA = new CompletableFuture<>();
+    AsyncDispatcher dispatcherA = Mockito.mock(AsyncDispatcher.class);
+    when(dispatcherA.dispatch(anyString())).thenReturn(responseA);
+    AsyncDispatcher dispatcherB = Mockito.mock(AsyncDispatcher.class);
+    when(dispatcherB.dispatch(anyString()))
+        .thenReturn(CompletableFuture.completedFuture("{\"b\":2}"));
+    oven.addAsyncDispatcher("A", dispatcherA);
+    oven.addAsyncDispatcher("B", dispatcherB);
+    oven.setExecutor(Runnable::run);
+    oven.declareIndependent("A", "B");
+
+    CompletableFuture<Cake> future =
+        oven.bakeAsync(
+            Recipe.prepare(
+                new Ingredient("TestIngredient1", "A") {},
+                new Ingredient("TestIngredient2", "B") {}));
+
+    verify(dispatcherB).dispatch(payloadJson("{\"TestIngredient2\":{}}"));
+    assertFalse(future.isDone());
+
+    responseA.complete("{\"a\":1}");
+
+    Cake cake = future.join();
+    assertEquals(1, (int) cake.get("a"));
+    assertEquals(2, (int) cake.get("b"));
+  }
+
+  @Test
+  public void testDeclareIndependent_runsSyncDispatchersConcurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    Dispatcher waitForOther =
+        payload -> {
+          latch.countDown();
+          try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          return "{}";
+        };
+    oven.addDispatcher("A", waitForOther);
+    oven.addDispatcher("B", waitForOther);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    oven.setExecutor(executor);
+    oven.declareIndependent("A", "B");
+
+    try {
+      oven.bake(
+          Recipe.prepare(
+              new Ingredient("TestIngredient1", "A") {},
+              new Ingredient("TestIngredient2", "B") {}));
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(0, latch.getCount());
+  }
+
+  @Test
+  public void testDeclareIndependent_mergesCakesInSegmentOrder() {
+    setupDispatcherSpy("A", "{\"shared\":\"a\",\"base\":0}");
+    setupDispatcherSpy("B", "{\"shared\":\"b\",\"base\":0}");
+    setupDispatcherSpy("C", "{\"shared\":\"c\",\"base\":1}");
+    Dispatcher spyD = setupDispatcherSpy("D");
+    oven.setExecutor(Runnable::run);
+    oven.declareIndependent("B", "C", "D");
+
+    Cake cake =
+        oven.bake(
+            Recipe.prepare(
+                new Ingredient("TestIngredient1", "A") {},
+                new Ingredient("TestIngredient2", "C") {},
+                new Ingredient("TestIngredient3", "B") {}));
+
+    assertEquals("b", cake.get("shared"));
+    assertEquals(1, (int) cake.get("base"));
+    verify(spyD, never()).dispatch(anyString());
+  }
+
+  @Test
+  public void testDeclareIndependent_dispatchesDependentSegmentWithMergedCake() {
+    setupDispatcherSpy("A", "{\"a\":1}");
+    setupDispatcherSpy("B", "{\"b\":2}");
+    Dispatcher spyC = setupDispatcherSpy("C");
+    oven.setExecutor(Runnable::run);
+    oven.declareIndependent("A", "B");
+
+    oven.bake(
+        Recipe.prepare(
+            new Ingredient("TestIngredient1", "A") {},
+            new Ingredient("TestIngredient2", "B") {},
+            new Ingredient("TestIngredient3", "C") {}));
+
+    verify(spyC).dispatch(payloadJsonWithCake("{\"a\":1,\"b\":2}", "{\"TestIngredient3\":{}}"));
+  }
+
+  @Test
+  public void testDeclareIndependent_doesNotDispatchSameDomainTogether() {
+    Dispatcher spyA = setupDispatcherSpy("A", "{\"a\":1}");
+    Dispatcher spyB = setupDispatcherSpy("B");
+    oven.declareIndependent("A", "B");
+
+    oven.bake(
+        Recipe.prepare(
+            new Ingredient("TestIngredient1", "A") {},
+            new Ingredient("TestIngredient2", "B") {},
+            new Ingredient("TestIngredient3", "A") {}));
+
+    verify(spyA).dispatch(payloadJsonWithCake("{\"a\":1}", "{\"TestIngredient3\":{}}"));
+    verify(spyB).dispatch(payloadJson("{\"TestIngredient2\":{}}"));
+  }
+
+  @Test
+  public void testBakeAll_sendsOnePayloadPerDomain() {
+    Dispatcher spyA = setupDispatcherSpy("A", "[{\"a\":1},{\"a\":2}]");
+    Dispatcher spyB = setupDispatcherSpy("B", "[{\"a\":1,\"b\":1},{\"a\":2,\"b\":2}]");
+
+    List<Cake> cakes =
+        oven.bakeAll(
+            Arrays.asList(
+                Recipe.prepare(
+                    new Ingredient("TestIngredient1", "A") {},
+                    new Ingredient("TestIngredient2", "B") {}),
+                Recipe.prepare(
+                    new Ingredient("TestIngredient3", "A") {},
+                    new Ingredient("TestIngredient4", "B") {})));
+
+    verify(spyA)
+        .dispatch(
+            "["
+                + payloadJson("{\"TestIngredient1\":{}}")
+                + ","
+                + payloadJson("{\"TestIngredient3\":{}}")
+                + "]");
+    verify(spyB)
+        .dispatch(
+            "["
+                + payloadJsonWithCake("{\"a\":1}", "{\"TestIngredient2\":{}}")
+                + ","
+                + payloadJsonWithCake("{\"a\":2}", "{\"TestIngredient4\":{}}")
+                + "]");
+    assertEquals(2, cakes.size());
+    assertEquals(1, (int) cakes.get(0).get("b"));
+    assertEquals(2, (int) cakes.get(1).get("b"));
+  }
+
+  @Test
+  public void testBakeAll_sendsSinglePayloadForUnsharedSegments() {
+    Dispatcher spyA = setupDispatcherSpy("A", "{\"a\":1}");
+    Dispatcher spyB = setupDispatcherSpy("B", "{\"b\":1}");
+
+    List<Cake> cakes =
+        oven.bakeAll(
+            Arrays.asList(
+                Recipe.prepare(new Ingredient("TestIngredient1", "A") {}),
+                Recipe.prepare(new Ingredient("TestIngredient2", "B") {}),
+                Recipe.prepare()));
+
+    verify(spyA).dispatch(payloadJson("{\"TestIngredient1\":{}}"));
+    verify(spyB).dispatch(payloadJson("{\"TestIngredient2\":{}}"));
+    assertEquals(3, cakes.size());
+    assertFalse(cakes.get(0).getEntries().containsKey("b"));
+    assertFalse(cakes.get(1).getEntries().containsKey("a"));
+  }
+
+  @Test
+  public void testBakeAll_interleavesRecipesOfDifferentShapes() {
+    Dispatcher spyA = setupDispatcherSpy("A", "[{},{}]");
+    Dispatcher spyB = setupDispatcherSpy("B", "{}");
+
+    oven.bakeAll(
+        Arrays.asList(
+            Recipe.prepare(
+                new Ingredient("TestIngredient1", "A") {},
+                new Ingredient("TestIngredient2", "B") {}),
+            Recipe.prepare(new Ingredient("TestIngredient3", "A") {})));
+
+    verify(spyA, times(1)).dispatch(anyString());
+    verify(spyB, times(1)).dispatch(anyString());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testBakeAll_throwsOnWrongNumberOfCakes() {
+    setupDispatcherSpy("A", "[{}]");
+
+    oven.bakeAll(
+        Arrays.asList(
+            Recipe.prepare(new Ingredient("TestIngredient1", "A") {}),
+            Recipe.prepare(new Ingredient("TestIngredient2", "A") {})));
+  }
+
+  @Test
+  public void testSetDeltaPayloads_requestsDeltaAndMergesReturnedEntries() {
+    setupDispatcherSpy("A", "{\"a\":1}");
+    Dispatcher spyB = setupDispatcherSpy("B", "{\"b\":2}");
+    oven.setDeltaPayloads(true);
+
+    Cake cake =
+        oven.bake(
+            Recipe.prepare(
+                new Ingredient("TestIngredient1", "A") {},
+                new Ingredient("TestIngredient2", "B") {}));
+
+    verify(spyB)
+        .dispatch(
+            "{\"recipe\":{\"Recipe\":{\"ingredients\":[{\"TestIngredient2\":{}}]}},\"cake\":{\"a\":1},\"delta\":true}");
+    assertEquals(1, (int) cake.get("a"));
+    assertEquals(2, (int) cake.get("b"));
+  }
+
+  @Test
+  public void testSetDeltaPayloads_deltaOverwritesChangedEntries() {
+    setupDispatcherSpy("A", "{\"a\":1}");
+    setupDispatcherSpy("B", "{\"a\":2}");
+    oven.setDeltaPayloads(true);
+
+    Cake cake =
+        oven.bake(
+            Recipe.prepare(
+                new Ingredient("TestIngredient1", "A") {},
+                new Ingredient("TestIngredient2", "B") {}));
+
+    assertEquals(2, (int) cake.get("a"));
+  }
+
+  @Test
+  public void testSetDeltaPayloads_mergesDeltasOfBatchedRecipes() {
+    setupDispatcherSpy("A", "[{\"a\":1},{\"a\":2}]");
+    setupDispatcherSpy("B", "[{\"b\":1},{\"b\":2}]");
+    oven.setDeltaPayloads(true);
+
+    List<Cake> cakes =
+        oven.bakeAll(
+            Arrays.asList(
+                Recipe.prepare(
+                    new Ingredient("TestIngredient1", "A") {},
+                    new Ingredient("TestIngredient2", "B") {}),
+                Recipe.prepare(
+                    new Ingredient("TestIngredient3", "A") {},
+                    new Ingredient("TestIngredient4", "B") {})));
+
+    assertEquals(1, (int) cakes.get(0).get("a"));
+    assertEquals(1, (int) cakes.get(0).get("b"));
+    assertEquals(2, (int) cakes.get(1).get("a"));
+    assertEquals(2, (int) cakes.get(1).get("b"));
+  }
+
+  @Test
+  public void testSetReorderSegments_dispatchesIndependentIngredientsTogether() {
+    Dispatcher spyA = setupDispatcherSpy("A");
+    Dispatcher spyB = setupDispatcherSpy("B");
+    oven.setReorderSegments(true);
+
+    oven.bake(
+        Recipe.prepare(
+            withoutKeys("TestIngredient1", "A"),
+            withoutKeys("TestIngredient2", "B"),
+            withoutKeys("TestIngredient3", "A")));
+
+    verify(spyA, times(1)).dispatch(anyString());
+    verify(spyB, times(1)).dispatch(anyString());
+  }
+
+  @Test
+  public void testSetReorderSegments_keepsOrderOfUndeclaredIngredients() {
+    Dispatcher spyA = setupDispatcherSpy("A");
+    Dispatcher spyB = setupDispatcherSpy("B");
+    oven.setReorderSegments(true);
+
+    oven.bake(
+        Recipe.prepare(
+            new Ingredient("TestIngredient1", "A") {},
+            new Ingredient("TestIngredient2", "B") {},
+            new Ingredient("TestIngredient3", "A") {}));
+
+    verify(spyA, times(2)).dispatch(anyString());
+    verify(spyB, times(1)).dispatch(anyString());
+  }
+
+  @Test
+  public void testGetRoundTripsSaved() {
+    Recipe recipe =
+        Recipe.prepare(
+            withoutKeys("TestIngredient1", "A"),
+            withoutKeys("TestIngredient2", "B"),
+            withoutKeys("TestIngredient3", "A"),
+            withoutKeys("TestIngredient4", "B"));
+
+    assertEquals(2, oven.getRoundTripsSaved(recipe));
+    assertEquals(0, oven.getRoundTripsSaved(Recipe.prepare(recipe.getIngredients().get(0))));
+  }
+
+  @Test
+  public void testBake_wrapsFailureThatIsNotRuntimeException() {
+    IOException failure = new IOException();
+    Oven failingOven =
+        new Oven() {
+          @Override
+          public CompletableFuture<Cake> bakeAsync(Recipe recipe) {
+            return CompletableFuture.failedFuture(failure);
+          }
+        };
+
+    try {
+      failingOven.bake(Recipe.prepare());
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertSame(failure, e.getCause());
+    }
+  }
+
+  @Test
+  public void testSetCakeCache_reusesCakeOfEqualIdempotentRecipe() {
+    Dispatcher spy = setupDispatcherSpy("A", "{\"catalogue\":\"foo\"}");
+    CakeCache cache = new CakeCache(10, Duration.ofMinutes(1));
+    oven.setCakeCache(cache);
+
+    Cake first = oven.bake(Recipe.prepare(idempotent("Catalogue", "A")));
+    first.publish("changed", true);
+    Cake second = oven.bake(Recipe.prepare(idempotent("Catalogue", "A")));
+
+    verify(spy, times(1)).dispatch(anyString());
+    assertEquals("foo", second.get("catalogue"));
+    assertFalse(second.find("changed").isPresent());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testSetCakeCache_recipeBuiltOnCachedRecipeIsCachedSeparately() {
+    // a class of their own each, since a payload can only have one type name per class
+    class Catalogue extends Ingredient {
+      Catalogue() {
+        super("Catalogue", "A");
+      }
+
+      @Override
+      protected boolean isIdempotent() {
+        return true;
+      }
+    }
+    class Products extends Ingredient {
+      Products() {
+        super("Products", "A");
+      }
+
+      @Override
+      protected boolean isIdempotent() {
+        return true;
+      }
+    }
+    Dispatcher spy = Mockito.spy(Dispatcher.class);
+    when(spy.dispatch(payloadJson("{\"Catalogue\":{}}"))).thenReturn("{\"catalogue\":true}");
+    when(spy.dispatch(payloadJson("{\"Catalogue\":{}}", "{\"Products\":{}}")))
+        .thenReturn("{\"catalogue\":true,\"products\":true}");
+    oven.addDispatcher("A", spy);
+    CakeCache cache = new CakeCache(10, Duration.ofMinutes(1));
+    oven.setCakeCache(cache);
+    Recipe recipe = Recipe.prepare(new Catalogue());
+
+    oven.bake(recipe);
+    oven.bake(Recipe.prepare(recipe, new Products()));
+    Cake both = oven.bake(Recipe.prepare(new Catalogue(), new Products()));
+    Cake catalogue = oven.bake(Recipe.prepare(new Catalogue()));
+
+    verify(spy).dispatch(payloadJson("{\"Catalogue\":{}}"));
+    verify(spy).dispatch(payloadJson("{\"Catalogue\":{}}", "{\"Products\":{}}"));
+    verify(spy, times(2)).dispatch(anyString());
+    assertEquals(true, both.get("products"));
+    assertFalse(catalogue.find("products").isPresent());
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testSetCakeCache_alwaysBakesRecipeWithIngredientNotIdempotent() {
+    Dispatcher spy = setupDispatcherSpy("A");
+    CakeCache cache = new CakeCache(10, Duration.ofMinutes(1));
+    oven.setCakeCache(cache);
+
+    for (int i = 0; i < 2; i++) {
+      oven.bake(
+          Recipe.prepare(idempotent("Catalogue", "A"), new Ingredient("TestIngredient", "A") {}));
+    }
+
+    verify(spy, times(2)).dispatch(anyString());
+    assertEquals(0, cache.getMisses());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testSetCakeCache_doesNotCacheFailedBake() {
+    Dispatcher spy = Mockito.spy(Dispatcher.class);
+    when(spy.dispatch(anyString())).thenThrow(new RuntimeException()).thenReturn("{}");
+    oven.addDispatcher("A", spy);
+    CakeCache cache = new CakeCache(10, Duration.ofMinutes(1));
+    oven.setCakeCache(cache);
+
+    try {
+      oven.bake(Recipe.prepare(idempotent("Catalogue", "A")));
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      // expected
+    }
+    oven.bake(Recipe.prepare(idempotent("Catalogue", "A")));
+
+    verify(spy, times(2)).dispatch(anyString());
+    assertEquals(1, cache.size());
+  }
+
   private String payloadJson(String... ingredientJson) {
     return "{\"recipe\":{\"Recipe\":{\"ingredients\":["
         + StringUtils.join(ingredientJson, ",")
@@ -369,4 +1044,27 @@ public class OvenTest {
     oven.addDispatcher(domain, spy);
     return spy;
   }
+
+  private static Ingredient withoutKeys(String ingredientType, String domain) {
+    return new Ingredient(ingredientType, domain) {
+      @Override
+      protected List<String> getReadKeys() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      protected List<String> getPublishedKeys() {
+        return Collections.emptyList();
+      }
+    };
+  }
+
+  private static Ingredient idempotent(String ingredientType, String domain) {
+    return new Ingredient(ingredientType, domain) {
+      @Override
+      protected boolean isIdempotent() {
+        return true;
+      }
+    };
+  }
 }
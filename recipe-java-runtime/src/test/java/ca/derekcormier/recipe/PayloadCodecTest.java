@@ -0,0 +1,54 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class PayloadCodecTest {
+  @Test
+  public void testForContentType_json() {
+    assertSame(PayloadCodec.JSON, PayloadCodec.forContentType("application/json"));
+  }
+
+  @Test
+  public void testForContentType_smile() {
+    assertSame(PayloadCodec.SMILE, PayloadCodec.forContentType("application/x-jackson-smile"));
+  }
+
+  @Test
+  public void testForContentType_ignoresParametersAndCase() {
+    assertSame(PayloadCodec.JSON, PayloadCodec.forContentType("Application/JSON; charset=utf-8"));
+  }
+
+  @Test
+  public void testForContentType_defaultsToJson() {
+    assertSame(PayloadCodec.JSON, PayloadCodec.forContentType(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForContentType_throwsOnUnsupportedType() {
+    PayloadCodec.forContentType("text/xml");
+  }
+
+  @Test
+  public void testCreateParser_readsOwnFormat() throws IOException {
+    try (JsonParser parser = PayloadCodec.JSON.createParser(stream("{\"a\":1}"))) {
+      assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testCreateParser_smileThrowsOnJson() throws IOException {
+    PayloadCodec.SMILE.createParser(stream("{\"a\":1}"));
+  }
+
+  private static ByteArrayInputStream stream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,84 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class PersistentListTest {
+  @Test
+  public void testEmpty_hasNoElements() {
+    assertTrue(PersistentList.empty().isEmpty());
+  }
+
+  @Test
+  public void testAppend_addsElement() {
+    PersistentList<String> list = PersistentList.<String>empty().append("a").append("b");
+
+    assertEquals(Arrays.asList("a", "b"), list);
+  }
+
+  @Test
+  public void testAppend_doesNotChangeOriginal() {
+    PersistentList<String> original = PersistentList.<String>empty().append("a");
+    original.append("b");
+
+    assertEquals(Arrays.asList("a"), original);
+  }
+
+  @Test
+  public void testAppend_siblingsDoNotSeeEachOther() {
+    PersistentList<String> base = PersistentList.<String>empty().append("a");
+    PersistentList<String> first = base.append("b");
+    PersistentList<String> second = base.append("c");
+
+    assertEquals(Arrays.asList("a", "b"), first);
+    assertEquals(Arrays.asList("a", "c"), second);
+    assertEquals(Arrays.asList("a", "b", "d"), first.append("d"));
+    assertEquals(Arrays.asList("a", "c", "e"), second.append("e"));
+  }
+
+  @Test
+  public void testAppend_manyElements() {
+    PersistentList<Integer> list = PersistentList.empty();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      list = list.append(i);
+      expected.add(i);
+    }
+
+    assertEquals(expected, list);
+  }
+
+  @Test
+  public void testAppend_concurrentSiblingsDoNotSeeEachOther() throws Exception {
+    PersistentList<Integer> base = PersistentList.<Integer>empty().append(-1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<PersistentList<Integer>>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        int value = i;
+        futures.add(executor.submit(() -> base.append(value)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals(Arrays.asList(-1, i), futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGet_throwsBeyondSize() {
+    PersistentList<String> base = PersistentList.<String>empty().append("a");
+    base.append("b");
+
+    base.get(1);
+  }
+}
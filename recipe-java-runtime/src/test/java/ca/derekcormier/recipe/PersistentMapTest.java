@@ -0,0 +1,119 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class PersistentMapTest {
+  @Test
+  public void testPut_addsEntry() {
+    PersistentMap<String, Object> map = PersistentMap.<String, Object>empty().put("foo", "bar");
+
+    assertEquals("bar", map.get("foo"));
+    assertTrue(map.containsKey("foo"));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testPut_replacesValue() {
+    PersistentMap<String, Object> map =
+        PersistentMap.<String, Object>empty().put("foo", "bar").put("foo", "baz");
+
+    assertEquals("baz", map.get("foo"));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testPut_leavesPreviousVersionUnchanged() {
+    PersistentMap<String, Object> first = PersistentMap.<String, Object>empty().put("foo", "bar");
+    PersistentMap<String, Object> second = first.put("foo", "baz").put("other", 1);
+
+    assertEquals("bar", first.get("foo"));
+    assertFalse(first.containsKey("other"));
+    assertEquals(1, first.size());
+    assertEquals(2, second.size());
+  }
+
+  @Test
+  public void testPut_sameValueReturnsSameMap() {
+    String value = "bar";
+    PersistentMap<String, Object> map = PersistentMap.<String, Object>empty().put("foo", value);
+
+    assertSame(map, map.put("foo", value));
+  }
+
+  @Test
+  public void testPut_storesNullValues() {
+    PersistentMap<String, Object> map = PersistentMap.<String, Object>empty().put("foo", null);
+
+    assertTrue(map.containsKey("foo"));
+    assertNull(map.get("foo"));
+    assertFalse(map.containsKey("bar"));
+  }
+
+  @Test
+  public void testPut_keysWithSameHashCode() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+
+    PersistentMap<String, Object> map =
+        PersistentMap.<String, Object>empty().put("Aa", 1).put("BB", 2).put("C#", 3);
+    PersistentMap<String, Object> replaced = map.put("BB", 4);
+
+    assertEquals(1, map.get("Aa"));
+    assertEquals(2, map.get("BB"));
+    assertEquals(3, map.get("C#"));
+    assertEquals(4, replaced.get("BB"));
+    assertEquals(3, replaced.size());
+    assertFalse(map.containsKey("AaBB"));
+  }
+
+  @Test
+  public void testPut_matchesHashMapForManyEntries() {
+    Random random = new Random(42);
+    Map<String, Object> expected = new HashMap<>();
+    PersistentMap<String, Object> map = PersistentMap.empty();
+    for (int i = 0; i < 20000; i++) {
+      String key = "key-" + random.nextInt(10000);
+      expected.put(key, i);
+      map = map.put(key, i);
+    }
+
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected, map.asMap());
+    for (Map.Entry<String, Object> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void testAsMap_iteratesEveryEntry() {
+    PersistentMap<String, Object> map = PersistentMap.empty();
+    Map<String, Object> expected = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map = map.put("key-" + i, i);
+      expected.put("key-" + i, i);
+    }
+    map = map.put("Aa", 1).put("BB", 2);
+    expected.put("Aa", 1);
+    expected.put("BB", 2);
+
+    Map<String, Object> iterated = new HashMap<>();
+    for (Map.Entry<String, Object> entry : map.asMap().entrySet()) {
+      iterated.put(entry.getKey(), entry.getValue());
+    }
+
+    assertEquals(expected, iterated);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAsMap_isUnmodifiable() {
+    PersistentMap.<String, Object>empty().asMap().put("foo", "bar");
+  }
+}
@@ -1,7 +1,12 @@
 package ca.derekcormier.recipe;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Test;
 
@@ -356,4 +361,120 @@ public class RecipeTest {
             .get(0)
             .getIngredientType());
   }
+
+  @Test
+  public void testSegment_ingredientAfterNestedContextInOtherDomainStartsNewSegment() {
+    Ingredient ingredient1 = new Ingredient("TestIngredient1", "A") {};
+    Ingredient ingredient2 = new Ingredient("TestIngredient2", "B") {};
+    Ingredient ingredient3 = new Ingredient("TestIngredient3", "A") {};
+
+    Recipe recipe =
+        Recipe.prepare(ingredient1, Recipe.context("context", ingredient2), ingredient3);
+
+    List<Recipe.Segment> segments = recipe.segment();
+    assertEquals(3, segments.size());
+    assertEquals("A", segments.get(0).domain);
+    assertEquals(Arrays.asList(ingredient1), segments.get(0).recipe.getIngredients());
+    assertEquals("B", segments.get(1).domain);
+    assertEquals("context", ((Recipe) segments.get(1).recipe.getIngredients().get(0)).getContext());
+    assertEquals("A", segments.get(2).domain);
+    assertEquals(Arrays.asList(ingredient3), segments.get(2).recipe.getIngredients());
+  }
+
+  @Test
+  public void testSegment_sameDomainContinuesSegmentAcrossNestedContexts() {
+    Ingredient ingredient1 = new Ingredient("TestIngredient1", "A") {};
+    Ingredient ingredient2 = new Ingredient("TestIngredient2", "A") {};
+    Ingredient ingredient3 = new Ingredient("TestIngredient3", "A") {};
+
+    Recipe recipe =
+        Recipe.prepare(ingredient1, Recipe.context("context", ingredient2), ingredient3);
+
+    List<Recipe.Segment> segments = recipe.segment();
+    assertEquals(1, segments.size());
+    assertEquals(3, segments.get(0).recipe.getIngredients().size());
+    assertEquals(ingredient3, segments.get(0).recipe.getIngredients().get(2));
+  }
+
+  @Test
+  public void testSegment_isComputedOnce() {
+    Recipe recipe = Recipe.prepare(new Ingredient("TestIngredient", "A") {});
+
+    assertSame(recipe.segment(), recipe.segment());
+  }
+
+  @Test
+  public void testSegment_deeplyNestedRecipe() {
+    Recipe recipe = Recipe.prepare();
+    for (int depth = 0; depth < 5000; depth++) {
+      String domain = depth % 2 == 0 ? "A" : "B";
+      recipe = Recipe.context("key" + depth, new Ingredient("TestIngredient", domain) {}, recipe);
+    }
+
+    List<Recipe.Segment> segments = recipe.segment();
+    assertEquals(5000, segments.size());
+    assertEquals("key4999", segments.get(0).recipe.getContext());
+  }
+
+  @Test
+  public void testIsIdempotent_whenEveryNestedIngredientIs() {
+    Ingredient idempotent =
+        new Ingredient("TestIngredient") {
+          @Override
+          protected boolean isIdempotent() {
+            return true;
+          }
+        };
+
+    assertTrue(Recipe.prepare().isIdempotent());
+    assertTrue(Recipe.prepare(idempotent, Recipe.context("foo", idempotent)).isIdempotent());
+    assertFalse(
+        Recipe.prepare(idempotent, Recipe.context("foo", new TestIngredient("A"))).isIdempotent());
+  }
+
+  @Test
+  public void testEquals_sameStructure() {
+    Recipe recipe1 =
+        Recipe.prepare(new TestIngredient("A"), Recipe.context("context", new TestIngredient("B")));
+    Recipe recipe2 =
+        Recipe.prepare(new TestIngredient("A"), Recipe.context("context", new TestIngredient("B")));
+
+    assertEquals(recipe1, recipe2);
+    assertEquals(recipe1.hashCode(), recipe2.hashCode());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetIngredients_cannotBeChanged() {
+    Recipe.prepare(new TestIngredient("A")).getIngredients().add(new TestIngredient("B"));
+  }
+
+  @Test
+  public void testEquals_orderAndContextMatter() {
+    Recipe recipe = Recipe.prepare(new TestIngredient("A"), new TestIngredient("B"));
+
+    assertNotEquals(recipe, Recipe.prepare(new TestIngredient("B"), new TestIngredient("A")));
+    assertNotEquals(
+        Recipe.context("x", new TestIngredient("A")), Recipe.context("y", new TestIngredient("A")));
+    assertNotEquals(
+        Recipe.prepare(Recipe.context("x", new TestIngredient("A"))),
+        Recipe.prepare(new TestIngredient("A")));
+  }
+
+  @Test
+  public void testEquals_fixtureEqualsPreparedRecipe() {
+    class Fixture extends Recipe {
+      Fixture() {
+        super(new TestIngredient("A"));
+      }
+    }
+
+    assertEquals(new Fixture(), Recipe.prepare(new TestIngredient("A")));
+    assertEquals(Recipe.prepare(new TestIngredient("A")), new Fixture());
+  }
+
+  private static class TestIngredient extends Ingredient {
+    TestIngredient(String domain) {
+      super("TestIngredient", domain);
+    }
+  }
 }
@@ -0,0 +1,171 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SegmentOptimizerTest {
+  @Test
+  public void testOptimize_groupsIngredientsWithoutDependencies() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys());
+    Ingredient b1 = new KeysIngredient("B", keys(), keys());
+    Ingredient a2 = new KeysIngredient("A", keys(), keys());
+    Ingredient b2 = new KeysIngredient("B", keys(), keys());
+
+    List<Recipe.Segment> segments = optimize(Recipe.prepare(a1, b1, a2, b2));
+
+    assertEquals(2, segments.size());
+    assertEquals("A", segments.get(0).domain);
+    assertEquals(Arrays.asList(a1, a2), segments.get(0).recipe.getIngredients());
+    assertEquals("B", segments.get(1).domain);
+    assertEquals(Arrays.asList(b1, b2), segments.get(1).recipe.getIngredients());
+  }
+
+  @Test
+  public void testOptimize_keepsIngredientAfterPublisherOfKeyItReads() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys("x"));
+    Ingredient b1 = new KeysIngredient("B", keys("x"), keys("y"));
+    Ingredient a2 = new KeysIngredient("A", keys("y"), keys());
+
+    assertEquals(3, optimize(Recipe.prepare(a1, b1, a2)).size());
+  }
+
+  @Test
+  public void testOptimize_keepsPublisherAfterIngredientThatReadsKey() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys());
+    Ingredient b1 = new KeysIngredient("B", keys("x"), keys());
+    Ingredient a2 = new KeysIngredient("A", keys(), keys("x"));
+
+    assertEquals(3, optimize(Recipe.prepare(a1, b1, a2)).size());
+  }
+
+  @Test
+  public void testOptimize_movesIngredientPastUnrelatedKeys() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys("x"));
+    Ingredient b1 = new KeysIngredient("B", keys("x"), keys("y"));
+    Ingredient a2 = new KeysIngredient("A", keys("z"), keys("w"));
+
+    List<Recipe.Segment> segments = optimize(Recipe.prepare(a1, b1, a2));
+
+    assertEquals(2, segments.size());
+    assertEquals(Arrays.asList(a1, a2), segments.get(0).recipe.getIngredients());
+    assertEquals(Arrays.asList(b1), segments.get(1).recipe.getIngredients());
+  }
+
+  @Test
+  public void testOptimize_undeclaredIngredientKeepsItsPlace() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys());
+    Ingredient b1 = new Ingredient("TestIngredient", "B") {};
+    Ingredient a2 = new KeysIngredient("A", keys(), keys());
+
+    assertEquals(3, optimize(Recipe.prepare(a1, b1, a2)).size());
+  }
+
+  @Test
+  public void testOptimize_ingredientReadingAnyKeyStaysAfterPublishers() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys("x"));
+    Ingredient b1 = new KeysIngredient("B", null, keys());
+    Ingredient a2 = new KeysIngredient("A", keys(), keys());
+    Ingredient b2 = new KeysIngredient("B", keys(), keys());
+
+    List<Recipe.Segment> segments = optimize(Recipe.prepare(a1, b1, a2, b2));
+
+    assertEquals(2, segments.size());
+    assertEquals(Arrays.asList(a1, a2), segments.get(0).recipe.getIngredients());
+    assertEquals(Arrays.asList(b1, b2), segments.get(1).recipe.getIngredients());
+  }
+
+  @Test
+  public void testOptimize_namespacedKeyDependsOnPublisherInContext() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys("id"));
+    Ingredient b1 = new KeysIngredient("B", keys(Cake.key("customer", "other")), keys());
+    Ingredient a2 = new KeysIngredient("A", keys(), keys());
+
+    List<Recipe.Segment> segments =
+        optimize(Recipe.prepare(Recipe.context("customer", a1), b1, a2));
+
+    assertEquals(2, segments.size());
+    List<Ingredient> first = segments.get(0).recipe.getIngredients();
+    assertEquals(2, first.size());
+    assertEquals("customer", ((Recipe) first.get(0)).getContext());
+    assertEquals(Arrays.asList(a1), ((Recipe) first.get(0)).getIngredients());
+    assertEquals(a2, first.get(1));
+  }
+
+  @Test
+  public void testOptimize_keepsIngredientInContextAfterPublisherOfContext() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys());
+    Ingredient b1 = new KeysIngredient("B", keys(), keys("c1"));
+    Ingredient a2 = new KeysIngredient("A", keys(), keys());
+
+    assertEquals(3, optimize(Recipe.prepare(a1, b1, Recipe.context("c1", a2))).size());
+  }
+
+  @Test
+  public void testOptimize_keepsPublisherAfterEarlierPublisherOfSameKey() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys());
+    Ingredient b1 = new KeysIngredient("B", keys(), keys("foo"));
+    Ingredient a2 = new KeysIngredient("A", keys(), keys("foo"));
+
+    assertEquals(3, optimize(Recipe.prepare(a1, b1, a2)).size());
+  }
+
+  @Test
+  public void testOptimize_mergesIngredientsOfSameContext() {
+    Ingredient a1 = new KeysIngredient("A", keys(), keys());
+    Ingredient b1 = new KeysIngredient("B", keys(), keys());
+    Ingredient a2 = new KeysIngredient("A", keys(), keys());
+
+    List<Recipe.Segment> segments = optimize(Recipe.prepare(Recipe.context("c", a1, b1, a2)));
+
+    assertEquals(2, segments.size());
+    Recipe context = (Recipe) segments.get(0).recipe.getIngredients().get(0);
+    assertEquals("c", context.getContext());
+    assertEquals(Arrays.asList(a1, a2), context.getIngredients());
+  }
+
+  @Test
+  public void testOptimize_neverAddsSegments() {
+    Ingredient a1 = new Ingredient("TestIngredient", "A") {};
+    Ingredient b1 = new KeysIngredient("B", keys("x"), keys());
+    Ingredient a2 = new KeysIngredient("A", keys(), keys("x"));
+    Ingredient c1 = new KeysIngredient("C", keys(), keys());
+    Ingredient a3 = new KeysIngredient("A", keys(), keys());
+    Recipe recipe = Recipe.prepare(a1, b1, a2, c1, a3);
+
+    assertEquals(5, recipe.segment().size());
+    assertEquals(4, optimize(recipe).size());
+  }
+
+  private static List<Recipe.Segment> optimize(Recipe recipe) {
+    return SegmentOptimizer.optimize(recipe).getSegments();
+  }
+
+  private static List<String> keys(String... keys) {
+    return keys.length == 0 ? Collections.emptyList() : Arrays.asList(keys);
+  }
+
+  private static class KeysIngredient extends Ingredient {
+    private final List<String> readKeys;
+    private final List<String> publishedKeys;
+
+    KeysIngredient(String domain, List<String> readKeys, List<String> publishedKeys) {
+      super("KeysIngredient", domain);
+      this.readKeys = readKeys;
+      this.publishedKeys = publishedKeys;
+    }
+
+    @Override
+    protected List<String> getReadKeys() {
+      return readKeys;
+    }
+
+    @Override
+    protected List<String> getPublishedKeys() {
+      return publishedKeys;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SerializationContextTest {
+  private SerializationContext context;
+
+  @Before
+  public void before() {
+    context = new SerializationContext();
+  }
+
+  @Test
+  public void testGetObjectMapper_reusesMapperForKnownIngredients() {
+    ObjectMapper first = context.getObjectMapper(Recipe.prepare(new FooIngredient()));
+    ObjectMapper second = context.getObjectMapper(Recipe.prepare(new FooIngredient()));
+
+    assertSame(first, second);
+  }
+
+  @Test
+  public void testGetObjectMapper_reusesMapperForEmptyRecipe() {
+    ObjectMapper first = context.getObjectMapper(Recipe.prepare(new FooIngredient()));
+    ObjectMapper second = context.getObjectMapper(Recipe.prepare());
+
+    assertSame(first, second);
+  }
+
+  @Test
+  public void testGetObjectMapper_registersNewIngredients() throws Exception {
+    ObjectMapper first = context.getObjectMapper(Recipe.prepare(new FooIngredient()));
+    ObjectMapper second =
+        context.getObjectMapper(Recipe.prepare(Recipe.context("ctx", new BarIngredient())));
+
+    assertNotSame(first, second);
+    assertEquals(
+        "{\"Recipe\":{\"ingredients\":[{\"Foo\":{}},{\"Bar\":{}}]}}",
+        second.writeValueAsString(Recipe.prepare(new FooIngredient(), new BarIngredient())));
+  }
+
+  @Test
+  public void testGetObjectMapper_sameClassWithDifferentTypesUsesRecipeTypes() throws Exception {
+    context.getObjectMapper(Recipe.prepare(new NamedIngredient("First")));
+    ObjectMapper mapper = context.getObjectMapper(Recipe.prepare(new NamedIngredient("Second")));
+
+    assertEquals(
+        "{\"Recipe\":{\"ingredients\":[{\"Second\":{}}]}}",
+        mapper.writeValueAsString(Recipe.prepare(new NamedIngredient("Second"))));
+  }
+
+  @Test
+  public void testGetObjectMapper_ingredientThatWritesItsOwnProperties() throws Exception {
+    ObjectMapper mapper = context.getObjectMapper(Recipe.prepare(new WritingIngredient()));
+
+    assertEquals(
+        "{\"Recipe\":{\"ingredients\":[{\"Writing\":{\"key\":\"k\",\"count\":3,\"tags\":[\"a\"]}}]}}",
+        mapper.writeValueAsString(Recipe.prepare(new WritingIngredient().keyed("k"))));
+  }
+
+  private static class FooIngredient extends Ingredient {
+    FooIngredient() {
+      super("Foo", "A");
+    }
+  }
+
+  private static class BarIngredient extends Ingredient {
+    BarIngredient() {
+      super("Bar", "A");
+    }
+  }
+
+  private static class NamedIngredient extends Ingredient {
+    NamedIngredient(String name) {
+      super(name, "A");
+    }
+  }
+
+  private static class WritingIngredient extends KeyedIngredient {
+    WritingIngredient() {
+      super("Writing", "A");
+    }
+
+    @Override
+    protected void writeProperties(PropertyWriter writer) throws IOException {
+      super.writeProperties(writer);
+      writer.writeInt("count", 3);
+      writer.write("tags", new String[] {"a"});
+    }
+  }
+}
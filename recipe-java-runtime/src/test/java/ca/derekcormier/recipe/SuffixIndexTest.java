@@ -0,0 +1,52 @@
+package ca.derekcormier.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SuffixIndexTest {
+  private SuffixIndex index;
+
+  @Before
+  public void before() {
+    index = new SuffixIndex();
+  }
+
+  @Test
+  public void testKeysEndingWith_findsKeysEndingInSubkeys() {
+    index.add("a.b.key");
+    index.add("a.c.key");
+    index.add("key");
+    index.add("a.key.other");
+
+    assertEquals(
+        new HashSet<>(Arrays.asList("a.b.key", "a.c.key", "key")),
+        new HashSet<>(index.keysEndingWith(CakeKey.parse("key"))));
+    assertEquals(Arrays.asList("a.b.key"), index.keysEndingWith(CakeKey.parse("b.key")));
+  }
+
+  @Test
+  public void testKeysEndingWith_matchesWholeSubkeysOnly() {
+    index.add("a.mykey");
+
+    assertTrue(index.keysEndingWith(CakeKey.parse("key")).isEmpty());
+  }
+
+  @Test
+  public void testKeysEndingWith_emptyForUnknownKey() {
+    index.add("a.key");
+
+    assertTrue(index.keysEndingWith(CakeKey.parse("b.a.key")).isEmpty());
+  }
+
+  @Test
+  public void testKeysEndingWith_ignoresEmptySubkeys() {
+    index.add("a..key");
+
+    assertEquals(Arrays.asList("a..key"), index.keysEndingWith(CakeKey.parse("a.key")));
+  }
+}